@@ -0,0 +1,208 @@
+package com.monobogdan.monolaunch;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.core.util.AtomicFile;
+
+import com.monobogdan.monolaunch.core.LabelCollator;
+import com.monobogdan.monolaunch.core.T9Label;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * On-disk snapshot of the launcher activities installed on the device.
+ *
+ * The file is a small versioned binary blob that is read in one go on startup, so the
+ * grid can be filled before PackageManager is asked anything. {@link #sync} then
+ * reconciles the snapshot and only resolves labels for packages whose
+ * lastUpdateTime moved (or which are new).
+ */
+class AppCatalog {
+
+    private static final String TAG = "AppCatalog";
+    private static final String FILE_NAME = "app_catalog.bin";
+    private static final int MAGIC = 0x4D4C4143; // "MLAC"
+    private static final int VERSION = 2; // 2: sort keys from LabelCollator
+
+    private final AtomicFile file;
+
+    AppCatalog(Context context) {
+        file = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    // --- Persistence ---
+
+    /** Returns the cached entries, or an empty list when there is no usable snapshot. */
+    List<AppListView.AppInfo> load() {
+        List<AppListView.AppInfo> apps = new ArrayList<>();
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(file.readFully()));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return apps;
+            // Labels are localized, a locale switch invalidates the whole snapshot
+            if (!in.readUTF().equals(Locale.getDefault().toString())) return apps;
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                AppListView.AppInfo app = new AppListView.AppInfo();
+                app.packageName = in.readUTF();
+                app.component = ComponentName.unflattenFromString(in.readUTF());
+                app.name = in.readUTF();
+                app.sortKey = in.readUTF();
+                app.lastUpdateTime = in.readLong();
+                if (app.component == null) continue;
+                app.intent = launchIntent(app.component);
+                index(app);
+                apps.add(app);
+            }
+        } catch (IOException e) {
+            // Missing or truncated file, fall back to a full scan
+            Log.w(TAG, "Catalog not loaded: " + e.getMessage());
+            apps.clear();
+        }
+        return apps;
+    }
+
+    void save(List<AppListView.AppInfo> apps) {
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(Locale.getDefault().toString());
+            out.writeInt(apps.size());
+            for (AppListView.AppInfo app : apps) {
+                out.writeUTF(app.packageName);
+                out.writeUTF(app.component.flattenToShortString());
+                out.writeUTF(app.name);
+                out.writeUTF(app.sortKey);
+                out.writeLong(app.lastUpdateTime);
+            }
+            out.flush();
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to save catalog: " + e.getMessage());
+            if (stream != null) file.failWrite(stream);
+        }
+    }
+
+    // --- Reconciliation ---
+
+    /**
+     * Brings {@code cached} up to date with PackageManager. Unchanged entries are reused
+     * as-is; only new or updated packages get their label resolved. Packages whose cached
+     * entry was updated or dropped are added to {@code stale}, their icons are outdated.
+     *
+     * @return the new entry list, or {@code null} when nothing changed
+     */
+    static List<AppListView.AppInfo> sync(PackageManager pm, List<AppListView.AppInfo> cached,
+                                          Set<String> stale) {
+        Map<String, Long> updateTimes = new HashMap<>();
+        for (PackageInfo info : queryInstalledPackages(pm)) {
+            updateTimes.put(info.packageName, info.lastUpdateTime);
+        }
+
+        Map<String, AppListView.AppInfo> known = new HashMap<>();
+        for (AppListView.AppInfo app : cached) {
+            known.put(app.component.flattenToShortString(), app);
+        }
+
+        boolean changed = false;
+        List<AppListView.AppInfo> result = new ArrayList<>();
+        for (ResolveInfo info : queryLauncherActivities(pm, null)) {
+            String pkg = info.activityInfo.packageName;
+            Long updated = updateTimes.get(pkg);
+            long lastUpdateTime = updated != null ? updated : 0;
+
+            ComponentName cn = new ComponentName(pkg, info.activityInfo.name);
+            AppListView.AppInfo app = known.remove(cn.flattenToShortString());
+            if (app == null || app.lastUpdateTime != lastUpdateTime) {
+                if (app != null) stale.add(pkg);
+                app = resolve(pm, info, lastUpdateTime);
+                changed = true;
+            }
+            result.add(app);
+        }
+
+        // Anything left over was uninstalled or lost its launcher activity
+        if (!known.isEmpty()) changed = true;
+        for (AppListView.AppInfo app : known.values()) stale.add(app.packageName);
+
+        return changed ? result : null;
+    }
+
+    static AppListView.AppInfo resolve(PackageManager pm, ResolveInfo info, long lastUpdateTime) {
+        AppListView.AppInfo app = new AppListView.AppInfo();
+        app.packageName = info.activityInfo.packageName;
+        app.component = new ComponentName(app.packageName, info.activityInfo.name);
+        app.name = info.loadLabel(pm).toString();
+        app.sortKey = new LabelCollator(Locale.getDefault()).keyOf(app.name);
+        app.lastUpdateTime = lastUpdateTime;
+        app.intent = launchIntent(app.component);
+        index(app);
+        return app;
+    }
+
+    // Precomputed once per entry so search and fast scroll never touch the label again
+    private static void index(AppListView.AppInfo app) {
+        app.t9 = T9Label.of(app.name);
+        app.section = LabelCollator.sectionOf(app.sortKey);
+    }
+
+    static List<ResolveInfo> queryLauncherActivities(PackageManager pm, String packageName) {
+        Intent filter = new Intent(Intent.ACTION_MAIN);
+        filter.addCategory(Intent.CATEGORY_LAUNCHER);
+        if (packageName != null) filter.setPackage(packageName);
+
+        if (Build.VERSION.SDK_INT >= 33) {
+            return pm.queryIntentActivities(filter, PackageManager.ResolveInfoFlags.of(0));
+        } else {
+            return pm.queryIntentActivities(filter, 0);
+        }
+    }
+
+    static long getLastUpdateTime(PackageManager pm, String packageName)
+            throws PackageManager.NameNotFoundException {
+        if (Build.VERSION.SDK_INT >= 33) {
+            return pm.getPackageInfo(packageName, PackageManager.PackageInfoFlags.of(0)).lastUpdateTime;
+        } else {
+            return pm.getPackageInfo(packageName, 0).lastUpdateTime;
+        }
+    }
+
+    private static List<PackageInfo> queryInstalledPackages(PackageManager pm) {
+        if (Build.VERSION.SDK_INT >= 33) {
+            return pm.getInstalledPackages(PackageManager.PackageInfoFlags.of(0));
+        } else {
+            return pm.getInstalledPackages(0);
+        }
+    }
+
+    static Intent launchIntent(ComponentName component) {
+        // Same shape as PackageManager.getLaunchIntentForPackage, without the binder call
+        Intent intent = new Intent(Intent.ACTION_MAIN);
+        intent.addCategory(Intent.CATEGORY_LAUNCHER);
+        intent.setComponent(component);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_RESET_TASK_IF_NEEDED);
+        return intent;
+    }
+}
@@ -0,0 +1,95 @@
+package com.monobogdan.monolaunch;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.TypedValue;
+import android.view.View;
+
+/**
+ * Grid cell for atlas mode: one view that draws its icon out of an {@link IconAtlas} and
+ * its label as plain text, instead of a LinearLayout with an ImageView and a TextView.
+ * Same size and look as the regular cell.
+ */
+class AppCellView extends View {
+
+    private final IconAtlas atlas;
+    private final Drawable placeholder;
+    private final Paint iconPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final TextPaint labelPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final int iconSize;
+    private final int padding;
+    private final int labelGap;
+    private final int labelAscent; // Negative, like FontMetricsInt.ascent
+    private final int labelHeight;
+    private final Rect iconRect = new Rect();
+
+    private String packageName;
+    private String label = "";
+    private CharSequence shownLabel = ""; // Ellipsized to the cell width
+
+    AppCellView(Context context, IconAtlas atlas, int iconSize) {
+        super(context);
+        this.atlas = atlas;
+        this.iconSize = iconSize;
+        float density = getResources().getDisplayMetrics().density;
+        padding = (int) (8 * density);
+        labelGap = (int) (2 * density);
+        placeholder = getResources().getDrawable(android.R.drawable.sym_def_app_icon);
+        labelPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 12,
+                getResources().getDisplayMetrics()));
+        labelPaint.setTextAlign(Paint.Align.CENTER);
+        labelPaint.setColor(Color.WHITE);
+        // getFontMetricsInt() allocates, the text size never changes so ask once
+        Paint.FontMetricsInt fm = labelPaint.getFontMetricsInt();
+        labelAscent = fm.ascent;
+        labelHeight = fm.descent - fm.ascent;
+    }
+
+    void bind(String packageName, String label, int color) {
+        this.packageName = packageName;
+        labelPaint.setColor(color);
+        if (!label.equals(this.label)) {
+            this.label = label;
+            ellipsize();
+        }
+        invalidate();
+    }
+
+    String getBoundPackage() {
+        return packageName;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int height = padding * 2 + iconSize + labelGap + labelHeight;
+        setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        int left = (w - iconSize) / 2;
+        iconRect.set(left, padding, left + iconSize, padding + iconSize);
+        ellipsize();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (packageName == null || !atlas.draw(canvas, packageName, iconRect, iconPaint)) {
+            placeholder.setBounds(iconRect);
+            placeholder.draw(canvas);
+        }
+        float baseline = iconRect.bottom + labelGap - labelAscent;
+        canvas.drawText(shownLabel, 0, shownLabel.length(), getWidth() / 2f, baseline, labelPaint);
+    }
+
+    private void ellipsize() {
+        int width = getWidth() - padding * 2;
+        shownLabel = width > 0 ? TextUtils.ellipsize(label, labelPaint, width, TextUtils.TruncateAt.END) : label;
+    }
+}
@@ -3,6 +3,7 @@ package com.monobogdan.monolaunch;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.content.BroadcastReceiver;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.ContextWrapper;
 import android.content.DialogInterface;
@@ -12,7 +13,6 @@ import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.ColorDrawable;
@@ -25,12 +25,12 @@ import android.os.Looper;
 import android.provider.Settings;
 import android.text.TextUtils;
 import android.util.Log;
-import android.util.LruCache;
 import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.KeyEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.BaseAdapter;
 import android.widget.FrameLayout;
@@ -41,13 +41,15 @@ import android.widget.SectionIndexer;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.monobogdan.monolaunch.core.SectionIndex;
+import com.monobogdan.monolaunch.core.T9Filter;
+import com.monobogdan.monolaunch.core.T9Label;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -61,19 +63,53 @@ class AppListView extends GridView {
     static class AppInfo {
         String name;
         String packageName;
+        ComponentName component;
         Intent intent;
+        String sortKey; // LabelCollator key
+        String section; // Fast-scroll section, derived from sortKey
+        T9Label t9; // Keypad form of the label
+        double usageScore; // Snapshot of UsageModel.score, taken when the list is sorted
+        long lastUpdateTime;
         boolean isPinned;
+
+        // Catalog entries belong to backgroundExecutor, the lists on screen get their own copies
+        AppInfo copy(boolean pinned, double score) {
+            AppInfo app = new AppInfo();
+            app.name = name;
+            app.packageName = packageName;
+            app.component = component;
+            app.intent = intent;
+            app.sortKey = sortKey;
+            app.section = section;
+            app.t9 = t9;
+            app.usageScore = score;
+            app.lastUpdateTime = lastUpdateTime;
+            app.isPinned = pinned;
+            return app;
+        }
     }
 
     static class ViewHolder {
         ImageView icon;
         TextView label;
+        String packageName; // Bound app, icons that arrive later are matched against it
     }
 
     class PackageManagerListener extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
-            reloadApps();
+            Uri data = intent.getData();
+            if (data == null) {
+                reloadApps();
+                return;
+            }
+            // An update is delivered as REMOVED(replacing) + ADDED + REPLACED, only act on the latter
+            if (Intent.ACTION_PACKAGE_REMOVED.equals(intent.getAction())
+                    && intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)) return;
+
+            pendingPackages.add(data.getSchemeSpecificPart());
+            mainHandler.removeCallbacks(flushPackageChanges);
+            mainHandler.postDelayed(flushPackageChanges, PACKAGE_BATCH_DELAY);
         }
     }
 
@@ -82,12 +118,36 @@ class AppListView extends GridView {
     private Launcher parent;
     private AppAdapter adapter;
     private ExecutorService backgroundExecutor;
+    private ExecutorService searchExecutor; // Kept apart so a package scan never delays typing
     private Handler mainHandler;
-    private LruCache<String, Bitmap> iconCache;
+    private IconCache icons;
+    private IconLoader iconLoader; // Refills cells whose icon was evicted, main thread only
+    private IconAtlas atlas; // Null unless atlas mode is on, main thread only
+    private AppCatalog catalog;
+    private PackageManagerListener packageListener;
 
     // Data (Volatile ensures thread safety for simple swaps)
+    private List<AppInfo> catalogApps; // Every launcher activity, owned by backgroundExecutor
     private volatile List<AppInfo> installedApps = new ArrayList<>();
-    private List<AppInfo> visibleApps = new ArrayList<>();
+    private volatile List<AppInfo> visibleApps = new ArrayList<>(); // Written on the main thread only
+
+    // Icons load visible cells first. The window is kept by the scroll listener, before the
+    // first layout it is the first screen.
+    private static final int FIRST_SCREEN = 12;
+    private volatile int firstVisible = 0;
+    private volatile int lastVisible = FIRST_SCREEN - 1;
+
+    // Package broadcasts are batched so a bulk install does not resolve app by app
+    private static final long PACKAGE_BATCH_DELAY = 500;
+    private final Set<String> pendingPackages = new HashSet<>();
+    private final Runnable flushPackageChanges = new Runnable() {
+        @Override
+        public void run() {
+            if (pendingPackages.isEmpty()) return;
+            updatePackages(new HashSet<>(pendingPackages));
+            pendingPackages.clear();
+        }
+    };
 
     // State
     private SharedPreferences prefs;
@@ -96,6 +156,12 @@ class AppListView extends GridView {
     private static final String PREF_NAME = "launcher_prefs";
     private static final String KEY_PINNED = "pinned_apps";
     private static final String KEY_HIDDEN = "hidden_apps";
+    private static final String KEY_SORT_BY_USAGE = "sort_by_usage";
+    private static final String KEY_ICON_ATLAS = "icon_atlas";
+    private static final String PINNED_SECTION = "\u2605"; // Pinned apps come first, whatever their letter
+    private static final Object[] NO_SECTIONS = new Object[0];
+    private UsageModel usage;
+    private volatile Comparator<AppInfo> appOrder;
 
     // UI
     private Drawable focusBackground;
@@ -106,23 +172,21 @@ class AppListView extends GridView {
     // T9 State
     private StringBuilder t9Query = new StringBuilder();
     private boolean isSearching = false;
-    
-    // T9 Maps
-    private static final Map<Character, Character> T9_MAP = new HashMap<>();
-    static {
-        // English
-        mapT9("abcABC", '2'); mapT9("defDEF", '3'); mapT9("ghiGHI", '4');
-        mapT9("jklJKL", '5'); mapT9("mnoMNO", '6'); mapT9("pqrsPQRS", '7');
-        mapT9("tuvTUV", '8'); mapT9("wxyzWXYZ", '9');
-        // Hebrew
-        mapT9("אבג", '2'); mapT9("דהו", '3'); mapT9("זחט", '4');
-        mapT9("יכלך", '5'); mapT9("מנסםן", '6'); mapT9("עפצףץ", '7');
-        mapT9("קרש", '8'); mapT9("ת", '9');
-    }
-    private static void mapT9(String letters, char digit) {
-        for (char c : letters.toCharArray()) T9_MAP.put(c, digit);
-    }
+    private int t9Generation = 0; // Results of older queries are dropped
+    // Owned by searchExecutor
+    private final T9Filter<AppInfo> t9Filter = new T9Filter<>(new T9Filter.Adapter<AppInfo>() {
+        @Override
+        public T9Label labelOf(AppInfo app) {
+            return app.t9;
+        }
 
+        // Frequent apps climb within a match class, T9Filter never lets them jump over a better match
+        @Override
+        public int bonusOf(AppInfo app) {
+            return (int) (40 * Math.log1p(usage.score(app.packageName)));
+        }
+    }); // Only used on searchExecutor
+    
     // --- Constructors ---
 
     public AppListView(Context context) {
@@ -139,19 +203,32 @@ class AppListView extends GridView {
     private void init(Context context) {
         // Threading & Cache
         backgroundExecutor = Executors.newSingleThreadExecutor();
+        searchExecutor = Executors.newSingleThreadExecutor();
         mainHandler = new Handler(Looper.getMainLooper());
-        int maxMemory = (int) (Runtime.getRuntime().maxMemory() / 1024);
-        iconCache = new LruCache<String, Bitmap>(maxMemory / 8) {
+        catalog = new AppCatalog(context);
+        icons = IconCache.get(context);
+        iconLoader = new IconLoader(icons, context.getPackageManager(), new IconLoader.Listener() {
+            @Override
+            public void onIconLoaded(String packageName) {
+                bindIcons(Collections.singleton(packageName));
+            }
+
             @Override
-            protected int sizeOf(String key, Bitmap bitmap) {
-                return bitmap.getByteCount() / 1024;
+            public boolean needsIcon(String packageName) {
+                // Atlas icons are not kept in the memory tier
+                if (atlas != null && atlas.contains(packageName)) return false;
+                return icons.getCached(packageName) == null;
             }
-        };
+        });
+        icons.addUser(iconUser);
 
         // Preferences
         prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
         pinnedPackages = new HashSet<>(prefs.getStringSet(KEY_PINNED, new HashSet<String>()));
         hiddenPackages = new HashSet<>(prefs.getStringSet(KEY_HIDDEN, new HashSet<String>()));
+        appOrder = prefs.getBoolean(KEY_SORT_BY_USAGE, false) ? USAGE_ORDER : APP_ORDER;
+        if (prefs.getBoolean(KEY_ICON_ATLAS, false)) atlas = new IconAtlas(icons.getIconSize());
+        usage = UsageModel.get(context);
 
         initFocusDrawable();
         initSearchBar(context);
@@ -165,6 +242,22 @@ class AppListView extends GridView {
         // Adapter
         adapter = new AppAdapter();
         setAdapter(adapter);
+        setOnScrollListener(new OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                if (visibleItemCount == 0) return;
+                int last = firstVisibleItem + visibleItemCount - 1;
+                if (firstVisibleItem == firstVisible && last == lastVisible) return;
+                int direction = Integer.signum(firstVisibleItem - firstVisible);
+                firstVisible = firstVisibleItem;
+                lastVisible = last;
+                iconLoader.setViewport(visibleApps, firstVisibleItem, last, direction);
+            }
+        });
 
         // --- Selection & Focus ---
         setOnItemSelectedListener(new OnItemSelectedListener() {
@@ -198,7 +291,7 @@ class AppListView extends GridView {
             @Override
             public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
                 if (position >= 0 && position < visibleApps.size()) {
-                    safeStartActivity(visibleApps.get(position).intent);
+                    launchApp(visibleApps.get(position));
                 }
             }
         });
@@ -215,7 +308,11 @@ class AppListView extends GridView {
         IntentFilter filter = new IntentFilter();
         filter.addAction(Intent.ACTION_PACKAGE_ADDED);
         filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
-        context.registerReceiver(new PackageManagerListener(), filter);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addDataScheme("package");
+        packageListener = new PackageManagerListener();
+        context.registerReceiver(packageListener, filter);
 
         reloadApps();
     }
@@ -259,110 +356,277 @@ class AppListView extends GridView {
         }
     }
 
+    private void launchApp(AppInfo app) {
+        safeStartActivity(app.intent);
+        usage.recordLaunch(app.packageName);
+        // Keep the "most used" order fresh for the next visit
+        if (appOrder == USAGE_ORDER) republishApps();
+    }
+
     // --- Data Loading (Thread Safe) ---
 
+    private static final Comparator<AppInfo> APP_ORDER = new Comparator<AppInfo>() {
+        @Override
+        public int compare(AppInfo a, AppInfo b) {
+            if (a.isPinned != b.isPinned) return a.isPinned ? -1 : 1;
+            return a.sortKey.compareTo(b.sortKey);
+        }
+    };
+
+    private static final Comparator<AppInfo> USAGE_ORDER = new Comparator<AppInfo>() {
+        @Override
+        public int compare(AppInfo a, AppInfo b) {
+            if (a.isPinned != b.isPinned) return a.isPinned ? -1 : 1;
+            if (a.usageScore != b.usageScore) return Double.compare(b.usageScore, a.usageScore);
+            return a.sortKey.compareTo(b.sortKey);
+        }
+    };
+
     private void reloadApps() {
+        final Set<String> pinned = new HashSet<>(pinnedPackages);
+        final Set<String> hidden = new HashSet<>(hiddenPackages);
         backgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
-                // 1. Build NEW list (don't modify existing one to avoid concurrent exception)
-                List<AppInfo> newList = new ArrayList<>();
-                
-                Intent filter = new Intent(Intent.ACTION_MAIN);
-                filter.addCategory(Intent.CATEGORY_LAUNCHER);
+                long start = JankWatchdog.begin(JankWatchdog.OP_RELOAD_APPS);
                 PackageManager pm = getContext().getPackageManager();
 
-                List<ResolveInfo> rawApps;
-                if (Build.VERSION.SDK_INT >= 33) {
-                    rawApps = pm.queryIntentActivities(filter, PackageManager.ResolveInfoFlags.of(0));
+                // 1. Cold start: show the on-disk catalog before touching PackageManager
+                if (catalogApps == null) {
+                    catalogApps = catalog.load();
+                    if (!catalogApps.isEmpty()) publishApps(catalogApps, pinned, hidden);
+                }
+
+                // 2. Reconcile, only new or updated packages get resolved
+                Set<String> stale = new HashSet<>();
+                List<AppInfo> synced = AppCatalog.sync(pm, catalogApps, stale);
+                if (synced != null) {
+                    catalogApps = synced;
+                    catalog.save(synced);
+                    publishApps(catalogApps, pinned, hidden);
+                }
+                // Updated while we were not running: the old pkg@time.png would never be read again
+                for (String pkg : stale) icons.remove(pkg);
+                if (!stale.isEmpty()) dropFromAtlas(stale);
+
+                loadMissingIcons(catalogApps);
+                JankWatchdog.end(JankWatchdog.OP_RELOAD_APPS, start);
+            }
+        });
+    }
+
+    // Re-applies pins and hidden apps without asking PackageManager again
+    private void republishApps() {
+        final Set<String> pinned = new HashSet<>(pinnedPackages);
+        final Set<String> hidden = new HashSet<>(hiddenPackages);
+        backgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (catalogApps != null) publishApps(catalogApps, pinned, hidden);
+            }
+        });
+    }
+
+    private void publishApps(List<AppInfo> apps, Set<String> pinned, Set<String> hidden) {
+        // 1. Build NEW list (don't modify existing one to avoid concurrent exception)
+        final List<AppInfo> newList = new ArrayList<>(apps.size());
+        for (AppInfo app : apps) {
+            if (hidden.contains(app.packageName)) continue;
+            newList.add(app.copy(pinned.contains(app.packageName), usage.score(app.packageName)));
+        }
+        Comparator<AppInfo> order = appOrder;
+        Collections.sort(newList, order);
+        final boolean alphabetical = order == APP_ORDER;
+
+        // 2. Swap on Main Thread
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                installedApps = newList; // Atomic swap
+                if (atlas != null) atlas.setExpected(newList.size());
+                adapter.rebuildSections(newList, alphabetical);
+                if (isSearching) {
+                    applyT9Filter(); // Re-filter with new data
                 } else {
-                    rawApps = pm.queryIntentActivities(filter, 0);
+                    visibleApps = new ArrayList<>(installedApps);
+                    adapter.notifyDataSetChanged();
                 }
+            }
+        });
+    }
+
+    // Re-resolves only the given packages and patches the sorted lists in place
+    private void updatePackages(final Set<String> packages) {
+        final Set<String> pinned = new HashSet<>(pinnedPackages);
+        final Set<String> hidden = new HashSet<>(hiddenPackages);
+        backgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (catalogApps == null) return; // Initial reload is still pending and will see them
+                PackageManager pm = getContext().getPackageManager();
 
-                for (ResolveInfo info : rawApps) {
-                    String pkg = info.activityInfo.packageName;
-                    if (hiddenPackages.contains(pkg)) continue;
-
-                    AppInfo app = new AppInfo();
-                    app.name = info.loadLabel(pm).toString();
-                    app.packageName = pkg;
-                    app.intent = pm.getLaunchIntentForPackage(pkg);
-                    app.isPinned = pinnedPackages.contains(pkg);
-
-                    // Cache icon
-                    if (iconCache.get(pkg) == null) {
-                        try {
-                            Drawable d = info.loadIcon(pm);
-                            Bitmap b = drawableToBitmap(d);
-                            if (b != null) iconCache.put(pkg, b);
-                        } catch (OutOfMemoryError e) {
-                            iconCache.evictAll(); 
-                        }
+                List<AppInfo> resolved = new ArrayList<>();
+                for (String pkg : packages) {
+                    long lastUpdateTime;
+                    try {
+                        lastUpdateTime = AppCatalog.getLastUpdateTime(pm, pkg);
+                    } catch (PackageManager.NameNotFoundException e) {
+                        continue; // Uninstalled
+                    }
+                    for (ResolveInfo info : AppCatalog.queryLauncherActivities(pm, pkg)) {
+                        resolved.add(AppCatalog.resolve(pm, info, lastUpdateTime));
                     }
-                    
-                    if (app.intent != null) newList.add(app);
                 }
 
-                Collections.sort(newList, new Comparator<AppInfo>() {
-                    @Override
-                    public int compare(AppInfo a, AppInfo b) {
-                        if (a.isPinned != b.isPinned) return a.isPinned ? -1 : 1;
-                        return a.name.compareToIgnoreCase(b.name);
-                    }
-                });
+                List<AppInfo> updated = new ArrayList<>(catalogApps.size() + resolved.size());
+                for (AppInfo app : catalogApps) {
+                    if (!packages.contains(app.packageName)) updated.add(app);
+                }
+                updated.addAll(resolved);
+                catalogApps = updated;
+                catalog.save(updated);
+
+                final List<AppInfo> added = new ArrayList<>();
+                for (AppInfo app : resolved) {
+                    if (hidden.contains(app.packageName)) continue;
+                    added.add(app.copy(pinned.contains(app.packageName), usage.score(app.packageName)));
+                }
+                for (String pkg : packages) icons.remove(pkg);
 
-                // 2. Swap on Main Thread
                 mainHandler.post(new Runnable() {
                     @Override
                     public void run() {
-                        installedApps = newList; // Atomic swap
-                        if (isSearching) {
-                            applyT9Filter(); // Re-filter with new data
-                        } else {
-                            visibleApps = new ArrayList<>(installedApps);
-                            adapter.notifyDataSetChanged();
-                        }
+                        applyPackageChanges(packages, added);
                     }
                 });
+
+                loadMissingIcons(resolved);
+            }
+        });
+    }
+
+    private void applyPackageChanges(Set<String> packages, List<AppInfo> added) {
+        List<AppInfo> apps = new ArrayList<>(installedApps);
+        if (atlas != null) {
+            for (String pkg : packages) atlas.remove(pkg); // Updated icons are copied in again when they load
+        }
+
+        // The section index follows installedApps, also while a search hides it
+        for (int i = apps.size() - 1; i >= 0; i--) {
+            if (!packages.contains(apps.get(i).packageName)) continue;
+            apps.remove(i);
+            adapter.onAppRemoved(apps, i);
+        }
+        for (AppInfo app : added) {
+            int pos = Collections.binarySearch(apps, app, appOrder);
+            if (pos < 0) pos = -pos - 1;
+            apps.add(pos, app);
+            adapter.onAppInserted(apps, pos);
+        }
+
+        installedApps = apps;
+        if (isSearching) {
+            applyT9Filter();
+        } else {
+            visibleApps = new ArrayList<>(apps);
+            adapter.notifyDataSetChanged();
+        }
+    }
+
+    // Icons stream in after the labels: on-screen cells first, then the grid top to bottom.
+    // They go through the icon loader behind anything the grid asks for, so a cell that
+    // binds meanwhile never loads the same icon a second time.
+    private void loadMissingIcons(List<AppInfo> apps) {
+        final Set<String> missing = new HashSet<>();
+        for (AppInfo app : apps) {
+            if (icons.getCached(app.packageName) == null) missing.add(app.packageName);
+        }
+        if (missing.isEmpty()) return;
+
+        // Ordered on the main thread, after the publish posted ahead of this has swapped the lists
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                List<AppInfo> grid = visibleApps;
+                List<AppInfo> order = new ArrayList<>(missing.size());
+                for (int i = Math.max(0, firstVisible); i <= lastVisible && i < grid.size(); i++) {
+                    if (missing.remove(grid.get(i).packageName)) order.add(grid.get(i));
+                }
+                for (AppInfo app : installedApps) {
+                    if (missing.remove(app.packageName)) order.add(app); // Hidden apps never show up here
+                }
+                iconLoader.requestCatalog(order);
             }
         });
     }
 
-    private Bitmap drawableToBitmap(Drawable drawable) {
-        if (drawable instanceof BitmapDrawable) return ((BitmapDrawable) drawable).getBitmap();
-        int w = drawable.getIntrinsicWidth();
-        int h = drawable.getIntrinsicHeight();
-        if (w <= 0) w = 48; if (h <= 0) h = 48;
-        Bitmap b = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
-        Canvas c = new Canvas(b);
-        drawable.setBounds(0, 0, c.getWidth(), c.getHeight());
-        drawable.draw(c);
-        return b;
+    // Cells are bound from the cache on the main thread, so only the attached ones can show an evicted icon
+    private final IconCache.User iconUser = new IconCache.User() {
+        @Override
+        public boolean isUsing(Bitmap b) {
+            for (int i = 0; i < getChildCount(); i++) {
+                Object tag = getChildAt(i).getTag();
+                if (!(tag instanceof ViewHolder)) continue;
+                Drawable d = ((ViewHolder) tag).icon.getDrawable();
+                if (d instanceof BitmapDrawable && ((BitmapDrawable) d).getBitmap() == b) return true;
+            }
+            return false;
+        }
+    };
+
+    // Puts freshly loaded icons into the cells showing them, main thread
+    private void bindIcons(Set<String> packages) {
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (child instanceof AppCellView) {
+                AppCellView cell = (AppCellView) child;
+                if (!packages.contains(cell.getBoundPackage())) continue;
+                if (atlas != null && putInAtlas(cell.getBoundPackage())) cell.invalidate();
+                continue;
+            }
+            Object tag = child.getTag();
+            if (!(tag instanceof ViewHolder)) continue;
+            ViewHolder holder = (ViewHolder) tag;
+            if (!packages.contains(holder.packageName)) continue;
+            Bitmap b = icons.getCached(holder.packageName);
+            if (b != null) holder.icon.setImageBitmap(b);
+        }
     }
 
     // --- Adapter ---
 
     private class AppAdapter extends BaseAdapter implements SectionIndexer {
         
-        private HashMap<String, Integer> alphaIndexer;
-        private String[] sections;
+        // Built from installedApps once per catalog change, T9 keystrokes never touch it
+        private final SectionIndex<AppInfo> sectionIndex = new SectionIndex<>(new SectionIndex.Labeler<AppInfo>() {
+            @Override
+            public String sectionOf(AppInfo app) {
+                return app.isPinned ? PINNED_SECTION : app.section;
+            }
+        });
 
         @Override
         public void notifyDataSetChanged() {
-            alphaIndexer = new HashMap<>();
-            for (int i = 0; i < visibleApps.size(); i++) {
-                if (visibleApps.get(i).name.length() > 0) {
-                    String s = visibleApps.get(i).name.substring(0, 1).toUpperCase();
-                    if (!alphaIndexer.containsKey(s)) alphaIndexer.put(s, i);
-                }
-            }
-            ArrayList<String> sectionList = new ArrayList<>(alphaIndexer.keySet());
-            Collections.sort(sectionList);
-            sections = new String[sectionList.size()];
-            sectionList.toArray(sections);
+            PerfCounters.count(PerfCounters.NOTIFY);
             super.notifyDataSetChanged();
         }
 
+        // Usage order scatters the letters, so it gets no sections at all
+        void rebuildSections(List<AppInfo> apps, boolean alphabetical) {
+            if (alphabetical) sectionIndex.rebuild(apps);
+            else sectionIndex.clear();
+        }
+
+        // 'apps' already contains the new entry at 'position'
+        void onAppInserted(List<AppInfo> apps, int position) {
+            sectionIndex.onInserted(apps, position);
+        }
+
+        // 'apps' no longer contains the entry that used to sit at 'position'
+        void onAppRemoved(List<AppInfo> apps, int position) {
+            sectionIndex.onRemoved(apps, position);
+        }
+
         @Override
         public int getCount() { return visibleApps.size(); }
         @Override
@@ -372,8 +636,11 @@ class AppListView extends GridView {
 
         @Override
         public View getView(int position, View convertView, ViewGroup parent) {
+            if (atlas != null) return getCell(position, convertView);
             ViewHolder holder;
-            if (convertView == null) {
+            PerfCounters.count(PerfCounters.BIND);
+            if (convertView == null || !(convertView.getTag() instanceof ViewHolder)) {
+                PerfCounters.count(PerfCounters.INFLATE);
                 float density = getResources().getDisplayMetrics().density;
                 int iconSize = (int)(56 * density);
                 
@@ -417,25 +684,52 @@ class AppListView extends GridView {
             }
 
             AppInfo app = getItem(position);
+            holder.packageName = app.packageName;
             holder.label.setText(app.name);
             holder.label.setTextColor(app.isPinned ? Color.YELLOW : Color.WHITE);
 
-            Bitmap b = iconCache.get(app.packageName);
-            if (b != null) holder.icon.setImageBitmap(b);
-            else holder.icon.setImageResource(android.R.drawable.sym_def_app_icon);
+            Bitmap b = icons.getCached(app.packageName);
+            if (b != null) {
+                holder.icon.setImageBitmap(b);
+            } else {
+                // Evicted or not loaded yet, the loader binds it when it arrives
+                holder.icon.setImageResource(android.R.drawable.sym_def_app_icon);
+                iconLoader.request(app, IconLoader.PRIORITY_VISIBLE);
+            }
 
             return convertView;
         }
 
+        private View getCell(int position, View convertView) {
+            PerfCounters.count(PerfCounters.BIND);
+            AppCellView cell;
+            if (convertView instanceof AppCellView) {
+                cell = (AppCellView) convertView;
+                cell.setBackground(null); // Reset recycled view state
+                cell.setScaleX(1.0f);
+                cell.setScaleY(1.0f);
+            } else {
+                PerfCounters.count(PerfCounters.INFLATE);
+                cell = new AppCellView(getContext(), atlas, icons.getIconSize());
+                cell.setFocusable(false);
+                cell.setClickable(false);
+            }
+
+            AppInfo app = getItem(position);
+            if (!atlas.contains(app.packageName) && !putInAtlas(app.packageName)) {
+                iconLoader.request(app, IconLoader.PRIORITY_VISIBLE);
+            }
+            cell.bind(app.packageName, app.name, app.isPinned ? Color.YELLOW : Color.WHITE);
+            return cell;
+        }
+
+        // A T9 result is short and ranked, not sorted, so it has no sections
         @Override
-        public Object[] getSections() { return sections; }
+        public Object[] getSections() { return isSearching ? NO_SECTIONS : sectionIndex.getSections(); }
         @Override
-        public int getPositionForSection(int sectionIndex) {
-            if(sections == null || sections.length == 0) return 0;
-            return alphaIndexer.get(sections[Math.min(sectionIndex, sections.length - 1)]);
-        }
+        public int getPositionForSection(int section) { return isSearching ? 0 : sectionIndex.getPositionForSection(section); }
         @Override
-        public int getSectionForPosition(int position) { return 0; }
+        public int getSectionForPosition(int position) { return isSearching ? 0 : sectionIndex.getSectionForPosition(position); }
     }
 
     // --- Menu & T9 Logic ---
@@ -451,6 +745,8 @@ class AppListView extends GridView {
         ops.add("Hide App");
         ops.add("System Settings");
         if (!hiddenPackages.isEmpty()) ops.add("Reset Hidden Apps");
+        ops.add(appOrder == USAGE_ORDER ? "Sort A-Z" : "Sort by Usage");
+        ops.add(atlas != null ? "Icon Atlas Off" : "Icon Atlas On");
 
         final String[] options = ops.toArray(new String[0]);
 
@@ -469,57 +765,118 @@ class AppListView extends GridView {
                     else if (sel.equals("Hide App")) {
                         hiddenPackages.add(app.packageName);
                         prefs.edit().putStringSet(KEY_HIDDEN, hiddenPackages).apply();
-                        reloadApps();
+                        republishApps();
                     }
                     else if (sel.equals("System Settings")) 
                         safeStartActivity(new Intent(Settings.ACTION_SETTINGS));
                     else if (sel.equals("Reset Hidden Apps")) {
                         hiddenPackages.clear();
                         prefs.edit().remove(KEY_HIDDEN).apply();
-                        reloadApps();
+                        republishApps();
+                    }
+                    else if (sel.startsWith("Sort")) {
+                        boolean byUsage = appOrder != USAGE_ORDER;
+                        appOrder = byUsage ? USAGE_ORDER : APP_ORDER;
+                        prefs.edit().putBoolean(KEY_SORT_BY_USAGE, byUsage).apply();
+                        republishApps();
+                    }
+                    else if (sel.startsWith("Icon Atlas")) {
+                        setAtlasEnabled(atlas == null);
                     }
                 }
             })
             .show();
     }
 
+    private void setAtlasEnabled(boolean enabled) {
+        atlas = enabled ? new IconAtlas(icons.getIconSize()) : null;
+        if (atlas != null) atlas.setExpected(installedApps.size());
+        prefs.edit().putBoolean(KEY_ICON_ATLAS, enabled).apply();
+        setAdapter(adapter); // Drops the recycled cells of the other kind
+    }
+
+    /** See {@link MemoryManager}. The atlas refills from the disk tier as cells bind. */
+    void trimMemory(int step) {
+        if (atlas == null || step < MemoryManager.STEP_HIDDEN) return;
+        atlas.clear();
+        adapter.notifyDataSetChanged(); // Bound cells would draw placeholders until rebound
+    }
+
+    // Copies the cached icon into the atlas and drops it from the memory tier, the atlas is enough
+    private boolean putInAtlas(String packageName) {
+        Bitmap b = icons.getCached(packageName);
+        if (b == null || !atlas.put(packageName, b)) return false;
+        icons.dropMemory(packageName);
+        return true;
+    }
+
+    private void dropFromAtlas(final Set<String> packages) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (atlas == null) return;
+                for (String pkg : packages) atlas.remove(pkg);
+            }
+        });
+    }
+
+    long atlasFootprint() {
+        return atlas != null ? atlas.footprint() : 0;
+    }
+
     private void togglePin(AppInfo app) {
         if (pinnedPackages.contains(app.packageName)) pinnedPackages.remove(app.packageName);
         else pinnedPackages.add(app.packageName);
         prefs.edit().putStringSet(KEY_PINNED, pinnedPackages).apply();
-        reloadApps();
-    }
-
-    private String getT9Signature(String name) {
-        StringBuilder sb = new StringBuilder();
-        for (char c : name.toCharArray()) {
-            if (T9_MAP.containsKey(c)) sb.append(T9_MAP.get(c));
-            else if (Character.isDigit(c)) sb.append(c);
-        }
-        return sb.toString();
+        republishApps();
     }
 
     private void applyT9Filter() {
-        String query = t9Query.toString();
-        List<AppInfo> tempResult = new ArrayList<>();
-        
         // Iterate over local 'installedApps' to avoid CME
-        List<AppInfo> source = installedApps; 
-        
-        if (query.isEmpty()) {
+        final List<AppInfo> source = installedApps;
+        final int len = t9Query.length();
+        final int generation = ++t9Generation;
+        JankWatchdog.tag(JankWatchdog.OP_T9_FILTER); // Timed once, on the search thread
+
+        if (len == 0) {
             isSearching = false;
+            // The next query starts from scratch, whatever digit it begins with
+            searchExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    t9Filter.reset();
+                }
+            });
             visibleApps = new ArrayList<>(source);
             toggleSearchBar(false);
-        } else {
-            isSearching = true;
-            for (AppInfo app : source) {
-                if (getT9Signature(app.name).contains(query)) tempResult.add(app);
-            }
-            visibleApps = tempResult;
-            toggleSearchBar(true);
+            adapter.notifyDataSetChanged();
+            if (!visibleApps.isEmpty()) setSelection(0);
+            return;
         }
-        adapter.notifyDataSetChanged();
-        if (!visibleApps.isEmpty()) setSelection(0);
+
+        isSearching = true;
+        toggleSearchBar(true);
+        final byte[] query = new byte[len];
+        for (int i = 0; i < len; i++) query[i] = (byte) (t9Query.charAt(i) - '0');
+
+        searchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = JankWatchdog.begin(JankWatchdog.OP_T9_FILTER);
+                final List<AppInfo> result = t9Filter.filter(source, query);
+                JankWatchdog.end(JankWatchdog.OP_T9_FILTER, start);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != t9Generation || !isSearching) return;
+                        JankWatchdog.tag(JankWatchdog.OP_T9_FILTER);
+                        visibleApps = result;
+                        adapter.notifyDataSetChanged();
+                        if (!visibleApps.isEmpty()) setSelection(0);
+                    }
+                });
+            }
+        });
     }
 
     private void toggleSearchBar(boolean show) {
@@ -544,13 +901,18 @@ class AppListView extends GridView {
 
     @Override
     public boolean onKeyDown(int keyCode, KeyEvent event) {
+        if (keyCode >= KeyEvent.KEYCODE_DPAD_UP && keyCode <= KeyEvent.KEYCODE_DPAD_RIGHT) {
+            PerfCounters.beginAction("grid.scroll");
+        }
         // T9
         if (keyCode >= KeyEvent.KEYCODE_0 && keyCode <= KeyEvent.KEYCODE_9) {
+            PerfCounters.beginAction("grid.search");
             t9Query.append((char)('0' + (keyCode - KeyEvent.KEYCODE_0)));
             applyT9Filter();
             return true;
         }
         if (keyCode == KeyEvent.KEYCODE_DEL) {
+            PerfCounters.beginAction("grid.search");
             if (t9Query.length() > 0) {
                 t9Query.deleteCharAt(t9Query.length() - 1);
                 applyT9Filter();
@@ -576,7 +938,7 @@ class AppListView extends GridView {
         if (keyCode == KeyEvent.KEYCODE_DPAD_CENTER || keyCode == KeyEvent.KEYCODE_ENTER) {
             int pos = getSelectedItemPosition();
             if (pos != AdapterView.INVALID_POSITION && pos < visibleApps.size()) {
-                safeStartActivity(visibleApps.get(pos).intent);
+                launchApp(visibleApps.get(pos));
             }
             return true;
         }
@@ -592,12 +954,34 @@ class AppListView extends GridView {
         return super.onKeyUp(keyCode, event);
     }
 
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        // The grid stays attached behind other screens, the bar must not float over them
+        if (searchBar == null) return;
+        if (isShown()) {
+            if (isSearching) toggleSearchBar(true);
+        } else {
+            searchBar.setVisibility(View.GONE);
+        }
+    }
+
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
         if (isSearchAttached && searchBar != null && searchBar.getParent() != null) {
             ((ViewGroup) searchBar.getParent()).removeView(searchBar);
+            isSearchAttached = false;
         }
-        if (backgroundExecutor != null) backgroundExecutor.shutdown();
+    }
+
+    // Workers live until the activity dies, not until the view is detached
+    void release() {
+        getContext().unregisterReceiver(packageListener);
+        backgroundExecutor.shutdown();
+        searchExecutor.shutdown();
+        iconLoader.release();
+        icons.removeUser(iconUser);
+        if (atlas != null) atlas.clear();
     }
 }
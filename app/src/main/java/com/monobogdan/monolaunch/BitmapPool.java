@@ -0,0 +1,90 @@
+package com.monobogdan.monolaunch;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Spare mutable bitmaps, bucketed by size and config, for icon rasterisation and decoding.
+ *
+ * Only bitmaps nobody draws any more may be put back: the pool hands them out again and
+ * their pixels get overwritten. Each bucket keeps a handful, enough to absorb a scroll
+ * through a large grid without holding on to memory the LRU just gave up.
+ */
+class BitmapPool {
+
+    private static final int MAX_PER_BUCKET = 16;
+
+    private final Map<Long, ArrayDeque<Bitmap>> buckets = new HashMap<>();
+    private long bytes;
+
+    // Canvas allocation is not free either, every worker keeps one and points it at the target
+    private static final ThreadLocal<Canvas> canvas = new ThreadLocal<Canvas>() {
+        @Override
+        protected Canvas initialValue() {
+            return new Canvas();
+        }
+    };
+
+    private static long keyOf(int width, int height, Bitmap.Config config) {
+        return (long) width << 32 | (long) height << 8 | config.ordinal();
+    }
+
+    /** A pooled bitmap as is, or null. For BitmapFactory.Options.inBitmap. */
+    synchronized Bitmap poll(int width, int height, Bitmap.Config config) {
+        ArrayDeque<Bitmap> bucket = buckets.get(keyOf(width, height, config));
+        Bitmap b = bucket != null ? bucket.poll() : null;
+        if (b != null) bytes -= b.getByteCount();
+        return b;
+    }
+
+    /** A cleared bitmap, from the pool when one is spare. */
+    Bitmap get(int width, int height, Bitmap.Config config) {
+        Bitmap b = poll(width, height, config);
+        if (b != null) {
+            b.eraseColor(Color.TRANSPARENT);
+            return b;
+        }
+        PerfCounters.count(PerfCounters.BITMAP);
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /** Takes a bitmap back. Immutable or recycled bitmaps and full buckets are left to the GC. */
+    synchronized void put(Bitmap b) {
+        if (b.isRecycled() || !b.isMutable() || b.getConfig() == null) return;
+        long key = keyOf(b.getWidth(), b.getHeight(), b.getConfig());
+        ArrayDeque<Bitmap> bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            buckets.put(key, bucket);
+        }
+        if (bucket.size() >= MAX_PER_BUCKET || bucket.contains(b)) return;
+        bucket.push(b);
+        bytes += b.getByteCount();
+    }
+
+    synchronized void clear() {
+        buckets.clear();
+        bytes = 0;
+    }
+
+    synchronized long footprint() {
+        return bytes;
+    }
+
+    /** This thread's canvas drawing into {@code target}. Call {@link #releaseCanvas} when done. */
+    static Canvas canvasFor(Bitmap target) {
+        Canvas c = canvas.get();
+        c.setBitmap(target);
+        return c;
+    }
+
+    // So the canvas does not keep the last target alive
+    static void releaseCanvas(Canvas c) {
+        c.setBitmap(null);
+    }
+}
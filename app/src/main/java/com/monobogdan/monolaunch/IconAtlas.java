@@ -0,0 +1,138 @@
+package com.monobogdan.monolaunch;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grid icons packed into a few shared page bitmaps.
+ *
+ * Each package gets a fixed slot of icon size in a page; a removed package frees its slot
+ * for the next one, so package changes only touch single slots. The grid then draws every
+ * icon from a handful of textures instead of uploading one per cell. Pages are sized to
+ * hold the expected catalog, up to 2048 px a side so old GPUs can still upload them.
+ * Main thread only.
+ */
+class IconAtlas {
+
+    private static final String TAG = "IconAtlas";
+    private static final int MAX_PAGE_SIZE = 2048; // Texture limit of the GPUs we run on
+    private static final int MIN_PER_ROW = 4;
+
+    private final int iconSize;
+    private int perRow;
+    private int rows;
+    private int perPage;
+    private final List<Bitmap> pages = new ArrayList<>();
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final List<Integer> freeSlots = new ArrayList<>();
+    private int nextSlot;
+
+    private final Canvas canvas = new Canvas();
+    private final Paint copyPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint clearPaint = new Paint();
+    private final Rect slotRect = new Rect();
+
+    IconAtlas(int iconSize) {
+        this.iconSize = iconSize;
+        setExpected(0);
+        // Overwrite the slot including alpha, icons are rarely opaque
+        copyPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+        clearPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
+    }
+
+    /** Icons the atlas will likely hold. Sizes the pages, so it only applies while there are none. */
+    void setExpected(int count) {
+        if (!pages.isEmpty()) return;
+        int max = Math.max(1, MAX_PAGE_SIZE / iconSize);
+        perRow = Math.min(max, Math.max(MIN_PER_ROW, (int) Math.ceil(Math.sqrt(count))));
+        rows = Math.min(max, Math.max(1, (count + perRow - 1) / perRow));
+        perPage = perRow * rows;
+    }
+
+    boolean contains(String packageName) {
+        return slots.containsKey(packageName);
+    }
+
+    /** Copies the icon into the package's slot. False when no page could be allocated. */
+    boolean put(String packageName, Bitmap icon) {
+        Integer slot = slots.get(packageName);
+        if (slot == null) {
+            slot = allocate();
+            if (slot < 0) return false;
+            slots.put(packageName, slot);
+        }
+        Bitmap page = pages.get(slot / perPage);
+        locate(slot, slotRect);
+        canvas.setBitmap(page);
+        canvas.drawBitmap(icon, null, slotRect, copyPaint);
+        canvas.setBitmap(null);
+        return true;
+    }
+
+    /** Frees the slot, e.g. when the package was updated or uninstalled. */
+    void remove(String packageName) {
+        Integer slot = slots.remove(packageName);
+        if (slot == null) return;
+        locate(slot, slotRect);
+        canvas.setBitmap(pages.get(slot / perPage));
+        canvas.drawRect(slotRect, clearPaint);
+        canvas.setBitmap(null);
+        freeSlots.add(slot);
+    }
+
+    /** Draws the package's icon into {@code dst}. False when it is not in the atlas. */
+    boolean draw(Canvas target, String packageName, Rect dst, Paint paint) {
+        Integer slot = slots.get(packageName);
+        if (slot == null) return false;
+        locate(slot, slotRect);
+        target.drawBitmap(pages.get(slot / perPage), slotRect, dst, paint);
+        return true;
+    }
+
+    /** Drops every page, cells fill it again as they bind. */
+    void clear() {
+        pages.clear();
+        slots.clear();
+        freeSlots.clear();
+        nextSlot = 0;
+    }
+
+    long footprint() {
+        long bytes = 0;
+        for (Bitmap page : pages) bytes += page.getByteCount();
+        return bytes;
+    }
+
+    private int allocate() {
+        if (!freeSlots.isEmpty()) return freeSlots.remove(freeSlots.size() - 1);
+        int slot = nextSlot;
+        if (slot / perPage == pages.size()) {
+            try {
+                pages.add(Bitmap.createBitmap(perRow * iconSize, rows * iconSize, Bitmap.Config.ARGB_8888));
+                PerfCounters.count(PerfCounters.BITMAP);
+            } catch (OutOfMemoryError e) {
+                Log.e(TAG, "No memory for an atlas page: " + e.getMessage());
+                return -1;
+            }
+        }
+        nextSlot++;
+        return slot;
+    }
+
+    private void locate(int slot, Rect out) {
+        int index = slot % perPage;
+        int left = (index % perRow) * iconSize;
+        int top = (index / perRow) * iconSize;
+        out.set(left, top, left + iconSize, top + iconSize);
+    }
+}
@@ -0,0 +1,242 @@
+package com.monobogdan.monolaunch;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.collection.LruCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Icon store shared by the app grid and the task list.
+ *
+ * Icons are rasterised once at display size (56dp, the task list draws them at 48dp)
+ * instead of the drawable's intrinsic size. The memory tier is an LRU keyed by package,
+ * the disk tier keeps the same pre-scaled bitmaps as PNG keyed by package and
+ * lastUpdateTime, so they survive process death and package updates invalidate them.
+ *
+ * Icons the LRU evicts go to a {@link BitmapPool} once no registered {@link User} shows
+ * them any more, and disk decodes and rasterisation draw into pooled bitmaps.
+ */
+class IconCache {
+
+    interface User {
+        /** Main thread. Whether {@code b} is on screen or held for binding later. */
+        boolean isUsing(Bitmap b);
+    }
+
+    private static final String TAG = "IconCache";
+    private static final String DIR_NAME = "icons";
+    private static final int ICON_SIZE_DP = 56;
+
+    private static IconCache instance;
+
+    private final LruCache<String, Bitmap> memory;
+    private final File diskDir;
+    private final int iconSize;
+    private final BitmapPool pool = new BitmapPool();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<User> users = new ArrayList<>(); // Main thread
+    private volatile boolean trimming; // Trims free memory, they do not feed the pool
+
+    static synchronized IconCache get(Context context) {
+        if (instance == null) instance = new IconCache(context.getApplicationContext());
+        return instance;
+    }
+
+    private IconCache(Context context) {
+        iconSize = (int) (ICON_SIZE_DP * context.getResources().getDisplayMetrics().density);
+        diskDir = new File(context.getCacheDir(), DIR_NAME);
+        if (!diskDir.exists() && !diskDir.mkdirs()) Log.w(TAG, "Cannot create " + diskDir);
+
+        // Pre-scaled icons are small, a sixteenth of the heap holds a few hundred of them
+        int maxMemory = (int) (Runtime.getRuntime().maxMemory() / 1024);
+        memory = new LruCache<String, Bitmap>(maxMemory / 16) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount() / 1024;
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                // A replaced or removed icon is still on screen until its cell is rebound
+                if (evicted && !trimming) recycleWhenUnused(oldValue);
+            }
+        };
+    }
+
+    int getIconSize() {
+        return iconSize;
+    }
+
+    /** Main thread. Evicted icons are only reused once no user holds them. */
+    void addUser(User user) {
+        users.add(user);
+    }
+
+    void removeUser(User user) {
+        users.remove(user);
+    }
+
+    private void recycleWhenUnused(final Bitmap b) {
+        if (!b.isMutable()) return; // Straight from the drawable, owned by its resources
+        // Every binding happens on the main thread, so checking there cannot race with one
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < users.size(); i++) {
+                    if (users.get(i).isUsing(b)) return;
+                }
+                pool.put(b);
+            }
+        });
+    }
+
+    /** Memory tier only, safe to call from getView. */
+    Bitmap getCached(String packageName) {
+        return memory.get(packageName);
+    }
+
+    /** Memory, then disk. Returns null when the icon has to be rasterised with {@link #put}. */
+    Bitmap get(String packageName, long lastUpdateTime) {
+        Bitmap b = memory.get(packageName);
+        if (b != null) return b;
+
+        File file = diskFile(packageName, lastUpdateTime);
+        if (!file.exists()) return null;
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inMutable = true;
+        options.inBitmap = pool.poll(iconSize, iconSize, Bitmap.Config.ARGB_8888);
+        try {
+            b = BitmapFactory.decodeFile(file.getPath(), options);
+        } catch (IllegalArgumentException e) {
+            // The file does not fit the pooled bitmap, e.g. written at another density
+            pool.put(options.inBitmap);
+            options.inBitmap = null;
+            b = BitmapFactory.decodeFile(file.getPath(), options);
+        } catch (OutOfMemoryError e) {
+            evictMemory();
+            return null;
+        }
+        if (b == null) {
+            if (options.inBitmap != null) pool.put(options.inBitmap);
+            return null;
+        }
+        if (b != options.inBitmap) PerfCounters.count(PerfCounters.BITMAP);
+        memory.put(packageName, b);
+        return b;
+    }
+
+    /** Scales the drawable down to display size and stores it in both tiers. Call off the UI thread. */
+    Bitmap put(String packageName, long lastUpdateTime, Drawable drawable) {
+        Bitmap b;
+        try {
+            b = rasterize(drawable);
+        } catch (OutOfMemoryError e) {
+            evictMemory();
+            return null;
+        }
+        memory.put(packageName, b);
+        writeToDisk(packageName, lastUpdateTime, b);
+        return b;
+    }
+
+    /** Drops every tier for the package, e.g. after it was updated or removed. */
+    void remove(final String packageName) {
+        memory.remove(packageName);
+        File[] stale = diskDir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(packageName + "@");
+            }
+        });
+        if (stale == null) return;
+        for (File f : stale) {
+            if (!f.delete()) Log.w(TAG, "Cannot delete " + f);
+        }
+    }
+
+    /** Drops only the memory tier entry, e.g. once the icon atlas holds a copy. The disk copy stays. */
+    void dropMemory(String packageName) {
+        memory.remove(packageName);
+    }
+
+    void evictMemory() {
+        trimming = true;
+        memory.evictAll();
+        trimming = false;
+        pool.clear();
+    }
+
+    /**
+     * Gives memory back, see {@link MemoryManager}. The cache refills up to its normal size
+     * afterwards, icons on screen stay referenced by their views either way.
+     */
+    void trim(int step) {
+        if (step == MemoryManager.STEP_NONE) return;
+        pool.clear();
+        trimming = true;
+        if (step >= MemoryManager.STEP_EVERYTHING) memory.evictAll();
+        else if (step >= MemoryManager.STEP_CRITICAL) memory.trimToSize(memory.maxSize() / 4);
+        else memory.trimToSize(memory.maxSize() / 2);
+        trimming = false;
+    }
+
+    long footprint() {
+        return memory.size() * 1024L + pool.footprint(); // sizeOf is in KB
+    }
+
+    private Bitmap rasterize(Drawable drawable) {
+        if (drawable instanceof BitmapDrawable) {
+            Bitmap src = ((BitmapDrawable) drawable).getBitmap();
+            if (src != null && src.getWidth() == iconSize && src.getHeight() == iconSize) return src;
+        }
+        Bitmap b = pool.get(iconSize, iconSize, Bitmap.Config.ARGB_8888);
+        Canvas c = BitmapPool.canvasFor(b);
+        drawable.setBounds(0, 0, iconSize, iconSize);
+        drawable.draw(c);
+        BitmapPool.releaseCanvas(c);
+        return b;
+    }
+
+    private void writeToDisk(String packageName, long lastUpdateTime, Bitmap b) {
+        File file = diskFile(packageName, lastUpdateTime);
+        // Grid and task list may write the same icon concurrently, rename keeps the file whole
+        File tmp = new File(diskDir, file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(tmp);
+            b.compress(Bitmap.CompressFormat.PNG, 100, out);
+            out.close();
+            out = null;
+            if (!tmp.renameTo(file)) Log.w(TAG, "Cannot store " + file);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write icon: " + e.getMessage());
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+            if (tmp.exists() && !tmp.delete()) Log.w(TAG, "Cannot delete " + tmp);
+        }
+    }
+
+    private File diskFile(String packageName, long lastUpdateTime) {
+        // '@' cannot appear in a package name, so prefixes never collide
+        return new File(diskDir, packageName + "@" + lastUpdateTime + ".png");
+    }
+}
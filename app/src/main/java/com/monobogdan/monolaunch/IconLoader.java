@@ -0,0 +1,188 @@
+package com.monobogdan.monolaunch;
+
+import android.content.ComponentName;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads icons the grid is about to show and the memory tier no longer has.
+ *
+ * Requests are ordered by priority: cells on screen, one screen ahead in the scroll
+ * direction, then the rest of the catalog after a package scan. Each viewport change
+ * cancels whatever scrolled away, so a fast D-pad run never leaves the pool decoding rows
+ * nobody sees; catalog requests only drop back to their own priority. Every icon goes
+ * through here, so one is never loaded twice at the same time. The pool has one thread
+ * per spare core, at most three. All methods are main-thread only.
+ */
+class IconLoader {
+
+    interface Listener {
+        /** Main thread. The icon is in the memory tier of the cache. */
+        void onIconLoaded(String packageName);
+
+        /** Main thread. False when the grid can draw the package's icon without loading it. */
+        boolean needsIcon(String packageName);
+    }
+
+    static final int PRIORITY_VISIBLE = 0;
+    static final int PRIORITY_PREFETCH = 1;
+    static final int PRIORITY_CATALOG = 2;
+
+    private static final String TAG = "IconLoader";
+
+    private final IconCache icons;
+    private final PackageManager pm;
+    private final Listener listener;
+    private final ThreadPoolExecutor pool;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Request> pending = new HashMap<>();
+    private int sequence;
+
+    private final class Request implements Runnable, Comparable<Request> {
+        final AppListView.AppInfo app;
+        final String packageName;
+        final ComponentName component;
+        final long lastUpdateTime;
+        final int priority;
+        final boolean catalog; // Queued by the catalog pass, falls back to it when cancelled
+        final int order;
+        volatile boolean cancelled;
+
+        Request(AppListView.AppInfo app, int priority, boolean catalog) {
+            this.app = app;
+            this.catalog = catalog;
+            packageName = app.packageName;
+            component = app.component;
+            lastUpdateTime = app.lastUpdateTime;
+            this.priority = priority;
+            order = sequence++;
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            if (priority != other.priority) return priority < other.priority ? -1 : 1;
+            return order < other.order ? -1 : (order == other.order ? 0 : 1);
+        }
+
+        // Pool thread
+        @Override
+        public void run() {
+            if (cancelled) return;
+            // A request this one replaced may have loaded it already
+            Bitmap b = icons.getCached(packageName);
+            if (b == null) b = icons.get(packageName, lastUpdateTime);
+            if (b == null && !cancelled) {
+                try {
+                    b = icons.put(packageName, lastUpdateTime, pm.getActivityIcon(component));
+                } catch (PackageManager.NameNotFoundException e) {
+                    Log.w(TAG, "Icon not found: " + packageName);
+                }
+            }
+            final boolean loaded = b != null;
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (pending.get(packageName) == Request.this) pending.remove(packageName);
+                    if (loaded && !cancelled) listener.onIconLoaded(packageName);
+                }
+            });
+        }
+    }
+
+    IconLoader(IconCache icons, PackageManager pm, Listener listener) {
+        this.icons = icons;
+        this.pm = pm;
+        this.listener = listener;
+        int threads = Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+        // execute() only: submit() would wrap the requests and lose their ordering
+        pool = new ThreadPoolExecutor(threads, threads, 5, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>());
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /** Queues the icon unless it is already queued at the same or a higher priority. */
+    void request(AppListView.AppInfo app, int priority) {
+        Request old = pending.get(app.packageName);
+        if (old != null && old.priority <= priority) return;
+        if (old != null) {
+            old.cancelled = true;
+            pool.remove(old);
+        }
+
+        Request r = new Request(app, priority, priority == PRIORITY_CATALOG || (old != null && old.catalog));
+        pending.put(app.packageName, r);
+        pool.execute(r);
+    }
+
+    /** Queues every icon of {@code apps}, in order, behind anything the grid shows. */
+    void requestCatalog(List<AppListView.AppInfo> apps) {
+        for (AppListView.AppInfo app : apps) {
+            if (listener.needsIcon(app.packageName)) request(app, PRIORITY_CATALOG);
+        }
+    }
+
+    /**
+     * The grid now shows positions {@code first..last} of {@code apps}. Visible cells are
+     * queued first, then a screen ahead in {@code direction} (1 down, -1 up, 0 both), and
+     * requests for anything else are cancelled.
+     */
+    void setViewport(List<AppListView.AppInfo> apps, int first, int last, int direction) {
+        if (apps.isEmpty() || last < first) return;
+        int screen = last - first + 1;
+        List<AppListView.AppInfo> visible = new ArrayList<>(screen);
+        List<AppListView.AppInfo> ahead = new ArrayList<>(screen);
+        for (int i = Math.max(0, first); i <= last && i < apps.size(); i++) visible.add(apps.get(i));
+        if (direction >= 0) {
+            for (int i = last + 1; i <= last + screen && i < apps.size(); i++) ahead.add(apps.get(i));
+        }
+        if (direction <= 0) {
+            for (int i = first - 1; i >= first - screen && i >= 0; i--) ahead.add(apps.get(i));
+        }
+
+        Set<String> wanted = new HashSet<>();
+        for (AppListView.AppInfo app : visible) wanted.add(app.packageName);
+        for (AppListView.AppInfo app : ahead) wanted.add(app.packageName);
+        List<AppListView.AppInfo> demoted = new ArrayList<>();
+        Iterator<Map.Entry<String, Request>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Request r = it.next().getValue();
+            if (wanted.contains(r.packageName) || r.priority == PRIORITY_CATALOG) continue;
+            r.cancelled = true;
+            pool.remove(r);
+            it.remove();
+            if (r.catalog) demoted.add(r.app);
+        }
+        for (AppListView.AppInfo app : demoted) request(app, PRIORITY_CATALOG);
+
+        for (AppListView.AppInfo app : visible) {
+            if (listener.needsIcon(app.packageName)) request(app, PRIORITY_VISIBLE);
+        }
+        for (AppListView.AppInfo app : ahead) {
+            if (listener.needsIcon(app.packageName)) request(app, PRIORITY_PREFETCH);
+        }
+    }
+
+    void cancelAll() {
+        for (Request r : pending.values()) r.cancelled = true;
+        pending.clear();
+        pool.getQueue().clear();
+    }
+
+    void release() {
+        cancelAll();
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,260 @@
+package com.monobogdan.monolaunch;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Printer;
+import android.view.Choreographer;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Opt-in main-thread jank and stall monitor.
+ *
+ * A Looper printer times every main-thread message and a Choreographer callback times every
+ * frame while the launcher is resumed. Launcher operations bracket themselves with
+ * {@link #begin}/{@link #end}: that records how long they took on whatever thread, and a
+ * slow main-thread message is charged to the last operation that ran inside it. The
+ * main-thread steps of an operation timed on a worker only {@link #tag} their message, so
+ * every operation records one duration. A helper
+ * thread reports the main thread's stack when one message blocks it for two seconds.
+ *
+ * Everything lands in fixed-size atomic arrays, so no locks and no allocation on the hot
+ * path; when disabled every hook is a single volatile read. Results are appended to
+ * Launcher.dump() and written to jank.txt in the app's external files dir on pause.
+ *
+ * Enable with: adb shell am start -n com.monobogdan.monolaunch/.Launcher --ez jank_watchdog true
+ */
+public final class JankWatchdog {
+
+    public static final int OP_OTHER = 0;
+    public static final int OP_T9_FILTER = 1;
+    public static final int OP_TASK_LIST = 2;
+    public static final int OP_STATUS_QUERY = 3;
+    public static final int OP_RELOAD_APPS = 4;
+    public static final int OP_STATUS_LABELS = 5;
+    private static final String[] OP_NAMES = {"other", "t9 filter", "task list", "status query", "reload apps",
+            "status labels"};
+    private static final int OPS = OP_NAMES.length;
+
+    private static final int FAMILY_FRAME = 0;   // Frame intervals, op unused
+    private static final int FAMILY_MESSAGE = 1; // Slow main-thread messages, by op
+    private static final int FAMILY_OP = 2;      // Operation durations on any thread, by op
+    private static final String[] FAMILY_NAMES = {"frames", "slow messages", "operations"};
+
+    // Upper bounds in ms, the last bucket takes everything above
+    private static final int[] BUCKETS = {16, 33, 50, 100, 200, 500, 1000, 5000, Integer.MAX_VALUE};
+
+    private static final String TAG = "JankWatchdog";
+    private static final String PREF_NAME = "launcher_prefs";
+    private static final String KEY_ENABLED = "jank_watchdog";
+    private static final String FILE_NAME = "jank.txt";
+    private static final long SLOW_MESSAGE_MS = 16;
+    private static final long STALL_MS = 2000;
+    private static final long STALL_CHECK_INTERVAL = 1000;
+    private static final int RECENT = 32;
+
+    private static final AtomicIntegerArray histograms = new AtomicIntegerArray(3 * OPS * BUCKETS.length);
+    // Last slow messages as (op << 32 | ms), written round robin
+    private static final AtomicLongArray recent = new AtomicLongArray(RECENT);
+    private static final AtomicInteger recentNext = new AtomicInteger();
+    private static final AtomicInteger stalls = new AtomicInteger();
+
+    private static volatile boolean enabled;
+    private static Thread mainThread;
+    private static Context context;
+    private static Handler watchdog;
+
+    // Main thread state, messageStart is also read by the stall check
+    private static volatile long messageStart;
+    private static int messageOp;
+    private static long lastFrameNanos;
+    private static boolean resumed;
+    private static long stallReported;
+
+    private JankWatchdog() {
+    }
+
+    /** Reads the opt-in flag (the intent extra updates it) and installs the hooks if set. */
+    static void start(Context ctx, Intent intent) {
+        SharedPreferences prefs = ctx.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        if (intent != null && intent.hasExtra(KEY_ENABLED)) {
+            prefs.edit().putBoolean(KEY_ENABLED, intent.getBooleanExtra(KEY_ENABLED, false)).apply();
+        }
+        boolean on = prefs.getBoolean(KEY_ENABLED, false);
+        if (on == enabled) return;
+
+        if (!on) {
+            setResumed(false);
+            enabled = false;
+            Looper.getMainLooper().setMessageLogging(null);
+            return;
+        }
+
+        context = ctx.getApplicationContext();
+        mainThread = Looper.getMainLooper().getThread();
+        if (watchdog == null) {
+            HandlerThread thread = new HandlerThread(TAG);
+            thread.start();
+            watchdog = new Handler(thread.getLooper());
+        }
+        Looper.getMainLooper().setMessageLogging(messagePrinter);
+        enabled = true;
+        Log.i(TAG, "Enabled");
+    }
+
+    // --- Hooks ---
+
+    /** Marks the start of an operation. Returns the start time to hand to {@link #end}. */
+    public static long begin(int op) {
+        if (!enabled) return 0;
+        if (Thread.currentThread() == mainThread) messageOp = op;
+        return SystemClock.uptimeMillis();
+    }
+
+    public static void end(int op, long start) {
+        if (!enabled || start == 0) return;
+        record(FAMILY_OP, op, SystemClock.uptimeMillis() - start);
+    }
+
+    /** Charges the running main-thread message to {@code op} without recording a duration. */
+    public static void tag(int op) {
+        if (enabled && Thread.currentThread() == mainThread) messageOp = op;
+    }
+
+    /** Frame timing and stall checks only run while the launcher is in front. Main thread. */
+    static void setResumed(boolean resumed) {
+        if (!enabled || JankWatchdog.resumed == resumed) return;
+        JankWatchdog.resumed = resumed;
+        if (resumed) {
+            lastFrameNanos = 0;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+            watchdog.postDelayed(stallCheck, STALL_CHECK_INTERVAL);
+        } else {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+            watchdog.removeCallbacks(stallCheck);
+            watchdog.post(export);
+        }
+    }
+
+    private static final Printer messagePrinter = new Printer() {
+        @Override
+        public void println(String x) {
+            // ">>>>> Dispatching to ..." and "<<<<< Finished to ...", the text itself is not needed
+            if (x.charAt(0) == '>') {
+                messageOp = OP_OTHER;
+                messageStart = SystemClock.uptimeMillis();
+                return;
+            }
+            long start = messageStart;
+            messageStart = 0;
+            if (start == 0) return;
+            long duration = SystemClock.uptimeMillis() - start;
+            if (duration < SLOW_MESSAGE_MS) return;
+
+            record(FAMILY_MESSAGE, messageOp, duration);
+            int slot = (recentNext.getAndIncrement() & Integer.MAX_VALUE) % RECENT;
+            recent.set(slot, (long) messageOp << 32 | Math.min(duration, Integer.MAX_VALUE));
+        }
+    };
+
+    private static final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (lastFrameNanos != 0) record(FAMILY_FRAME, OP_OTHER, (frameTimeNanos - lastFrameNanos) / 1000000);
+            lastFrameNanos = frameTimeNanos;
+            if (resumed) Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+
+    // Runs on the watchdog thread
+    private static final Runnable stallCheck = new Runnable() {
+        @Override
+        public void run() {
+            long start = messageStart;
+            if (start != 0 && start != stallReported && SystemClock.uptimeMillis() - start >= STALL_MS) {
+                stallReported = start;
+                stalls.incrementAndGet();
+                StringBuilder trace = new StringBuilder("Main thread blocked for ")
+                        .append(SystemClock.uptimeMillis() - start).append(" ms in ")
+                        .append(OP_NAMES[messageOp]).append(':');
+                for (StackTraceElement e : mainThread.getStackTrace()) trace.append("\n    at ").append(e);
+                Log.w(TAG, trace.toString());
+            }
+            watchdog.postDelayed(this, STALL_CHECK_INTERVAL);
+        }
+    };
+
+    private static void record(int family, int op, long ms) {
+        int bucket = 0;
+        while (ms > BUCKETS[bucket]) bucket++;
+        histograms.incrementAndGet((family * OPS + op) * BUCKETS.length + bucket);
+    }
+
+    // --- Export ---
+
+    static void dump(String prefix, PrintWriter writer) {
+        if (!enabled) {
+            writer.println(prefix + "Jank watchdog: off");
+            return;
+        }
+        writer.println(prefix + "Jank watchdog: stalls=" + stalls.get());
+
+        StringBuilder header = new StringBuilder(prefix).append(String.format(Locale.US, "  %-28s", "ms <="));
+        for (int bound : BUCKETS) header.append(String.format(Locale.US, "%6s", bound == Integer.MAX_VALUE ? "more" : bound));
+        writer.println(header);
+
+        for (int family = 0; family < FAMILY_NAMES.length; family++) {
+            for (int op = 0; op < OPS; op++) {
+                if (family == FAMILY_FRAME && op != OP_OTHER) continue;
+                int base = (family * OPS + op) * BUCKETS.length;
+                int total = 0;
+                for (int b = 0; b < BUCKETS.length; b++) total += histograms.get(base + b);
+                if (total == 0) continue;
+
+                String name = family == FAMILY_FRAME ? FAMILY_NAMES[family] : FAMILY_NAMES[family] + " / " + OP_NAMES[op];
+                StringBuilder line = new StringBuilder(prefix).append(String.format(Locale.US, "  %-28s", name));
+                for (int b = 0; b < BUCKETS.length; b++) line.append(String.format(Locale.US, "%6d", histograms.get(base + b)));
+                writer.println(line);
+            }
+        }
+
+        writer.println(prefix + "  Recent slow messages, oldest first:");
+        int next = recentNext.get() & Integer.MAX_VALUE;
+        for (int i = 0; i < RECENT; i++) {
+            long entry = recent.get((next + i) % RECENT);
+            if (entry == 0) continue;
+            writer.println(prefix + "    " + OP_NAMES[(int) (entry >>> 32)] + " " + (int) entry + " ms");
+        }
+    }
+
+    // Runs on the watchdog thread
+    private static final Runnable export = new Runnable() {
+        @Override
+        public void run() {
+            File dir = context.getExternalFilesDir(null);
+            if (dir == null) dir = context.getFilesDir();
+            PrintWriter writer = null;
+            try {
+                writer = new PrintWriter(new FileWriter(new File(dir, FILE_NAME)));
+                dump("", writer);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to export: " + e.getMessage());
+            } finally {
+                if (writer != null) writer.close();
+            }
+        }
+    };
+}
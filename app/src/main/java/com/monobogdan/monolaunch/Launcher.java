@@ -5,46 +5,56 @@ import android.util.TypedValue;
 import android.Manifest;
 import android.app.Activity;
 import android.app.StatusBarManager;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Rect;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.DisplayMetrics;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import android.app.AppOpsManager;
 import android.provider.Settings;
 
-import com.monobogdan.monolaunch.widgets.ClockWidget;
-import com.monobogdan.monolaunch.widgets.PlayerWidget;
-import com.monobogdan.monolaunch.widgets.StatusWidget;
+import com.monobogdan.monolaunch.widgets.WidgetHost;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 
 public class Launcher extends Activity {
 
     private static final int REQUEST_EXTERNAL_STORAGE = 1;
     private static final String TAG = "Launcher";
 
-    public class LauncherView extends View {
+    public class LauncherView extends ViewGroup {
         final String TAG = "LauncherView";
 
         private Paint defaultPaint;
         private Paint fontPaint;
         private BitmapDrawable iconMenu;
 
-        private ClockWidget clockWidget;
-        private StatusWidget statusWidget;
         private long timeSinceStart;
 
-        private PlayerWidget playerView;
+        // Files/menu/contacts never change, they are rendered once into this layer
+        private Bitmap bottomBarLayer;
+        private float bottomBarTop;
+        private final Rect clip = new Rect();
 
         private float dpToPx(float dp) {
             return TypedValue.applyDimension(
@@ -63,9 +73,6 @@ public class Launcher extends Activity {
         public LauncherView(Context ctx) {
             super(ctx);
 
-            clockWidget = new ClockWidget(this);
-            playerView = new PlayerWidget(this);
-
             defaultPaint = new Paint();
             defaultPaint.setColor(Color.WHITE);
 
@@ -74,7 +81,9 @@ public class Launcher extends Activity {
             fontPaint.setAntiAlias(true);
             fontPaint.setTextSize(spToPx(16));
 
-            statusWidget = new StatusWidget(this);
+            // Clock, status and player unless the user reordered them, each in its own child view
+            setWillNotDraw(false);
+            widgetHost.inflate(this);
 
             iconMenu = (BitmapDrawable) ctx.getResources().getDrawable(R.drawable.list);
         }
@@ -179,6 +188,46 @@ public class Launcher extends Activity {
             
         }
 
+        @Override
+        protected void onWindowVisibilityChanged(int visibility) {
+            super.onWindowVisibilityChanged(visibility);
+            widgetHost.setHomeVisible(visibility == VISIBLE && isShown());
+        }
+
+        @Override
+        protected void onVisibilityChanged(View changedView, int visibility) {
+            super.onVisibilityChanged(changedView, visibility);
+            // Hidden by ScreenManager while another screen is up, so nothing polls in the background
+            widgetHost.setHomeVisible(getWindowVisibility() == VISIBLE && isShown());
+        }
+
+        @Override
+        protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+            super.onSizeChanged(w, h, oldw, oldh);
+
+            buildBottomBarLayer(w, h);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int l, int t, int r, int b) {
+            widgetHost.layout((int) dpToPx(15), r - l);
+        }
+
+        private void buildBottomBarLayer(int w, int h) {
+            if (bottomBarLayer != null) bottomBarLayer.recycle();
+            bottomBarLayer = null;
+            if (w <= 0 || h <= 0) return;
+
+            float textTop = h - fontPaint.getFontMetrics().bottom - dpToPx(3) + fontPaint.getFontMetrics().top;
+            float iconTop = h - iconMenu.getMinimumHeight() - dpToPx(3);
+            bottomBarTop = (float) Math.floor(Math.max(0, Math.min(textTop, iconTop)));
+
+            bottomBarLayer = Bitmap.createBitmap(w, h - (int) bottomBarTop, Bitmap.Config.ARGB_8888);
+            Canvas layer = new Canvas(bottomBarLayer);
+            layer.translate(0, -bottomBarTop);
+            drawBottomBar(layer);
+        }
+
         private void drawBottomBar(Canvas canvas) {
             float metrics = fontPaint.getFontMetrics().bottom;
             float bottomLine = getHeight() - metrics - dpToPx(3);
@@ -201,66 +250,191 @@ public class Launcher extends Activity {
         protected void onDraw(Canvas canvas) {
             super.onDraw(canvas);
 
-            float baseline = dpToPx(15);
+            // Widgets are child views and draw themselves. In software only the dirty area is
+            // repainted, so skip the bar when a widget above it changed
+            canvas.getClipBounds(clip);
 
-            baseline += clockWidget.draw(canvas, baseline);
-            baseline += statusWidget.draw(canvas, baseline);
-            baseline += playerView.draw(canvas, baseline);
-
-            clientWidth = getWindow().getDecorView().getWidth();
-            clientHeight = getWindow().getDecorView().getHeight(); // HACK!!!
-
-            drawBottomBar(canvas);
+            if (bottomBarLayer != null && clip.bottom > bottomBarTop)
+                canvas.drawBitmap(bottomBarLayer, 0, bottomBarTop, null);
         }
     }
 
     private Drawable cachedBackground;
+    private WidgetHost widgetHost;
+    private WallpaperStage wallpaperStage;
     private LauncherView launcherView;
     private AppListView appList;
     private DialerView dialerView;
     private Tasks tasks;
 
-    private int clientHeight;
-    private int clientWidth;
+    private ScreenManager screens;
+
+    private final MemoryManager memory = new MemoryManager();
+    private Bitmap wallpaper;        // Held by the window background
+    private boolean wallpaperDropped; // Under memory pressure, brought back on resume
 
     public Drawable getCachedBackground() {
         return cachedBackground;
     }
 
     public void switchToHome() {
-        setContentView(launcherView);
-        launcherView.requestFocus();
-
-        launcherView.setAlpha(0);
-        launcherView.animate().alpha(1.0f).setDuration(350);
+        PerfCounters.beginAction("home.open");
+        screens.show(launcherView, ScreenManager.ENTER_FADE, 350);
     }
 
     private void switchToDialer() {
-        setContentView(dialerView);
-        dialerView.requestFocus();
-        dialerView.setTranslationY(clientHeight);
-        dialerView.animate().setDuration(250).translationY(0);
+        screens.show(ensureDialer(), ScreenManager.ENTER_FROM_BOTTOM, 250);
     }
 
     private void switchToMainMenu() {
-        setContentView(appList);
-        appList.requestFocus();
-        appList.setTranslationY(clientHeight);
-        appList.animate().setDuration(250).translationY(0);
+        PerfCounters.beginAction("grid.open");
+        screens.show(ensureAppList(), ScreenManager.ENTER_FROM_BOTTOM, 250);
     }
 
     private void switchToTasks() {
-        tasks.updateTaskList();
-        setContentView(tasks);
-        tasks.requestFocus();
-        tasks.setTranslationX(clientWidth);
-        tasks.animate().setDuration(250).translationX(0);
+        PerfCounters.beginAction("tasks.open");
+        ensureTasks().updateTaskList();
+        screens.show(tasks, ScreenManager.ENTER_FROM_RIGHT, 250);
     }
 
-    @Override
-    protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
+    // --- Deferred screens ---
+    // Built by the idle handler after the first frame, or right away when a key gets there first
+
+    private AppListView ensureAppList() {
+        if (appList == null) {
+            StartupTrace.begin("app list");
+            appList = new AppListView(this);
+            appList.setFocusable(true);
+            screens.add(appList, launcherView);
+            // Home warms up the app grid, every other screen goes back home
+            screens.setLikelyNext(launcherView, appList);
+            StartupTrace.end();
+        }
+        return appList;
+    }
+
+    private Tasks ensureTasks() {
+        if (tasks == null) {
+            StartupTrace.begin("tasks");
+            tasks = new Tasks(this);
+            tasks.setFocusable(true);
+            screens.add(tasks, launcherView);
+            tasks.refresh();
+            StartupTrace.end();
+        }
+        return tasks;
+    }
+
+    private DialerView ensureDialer() {
+        if (dialerView == null) {
+            StartupTrace.begin("dialer");
+            dialerView = new DialerView(getApplicationContext());
+            dialerView.setFocusable(true);
+            screens.add(dialerView, launcherView);
+            StartupTrace.end();
+        }
+        return dialerView;
+    }
+
+    // --- Memory pressure ---
+
+    private void registerMemoryTiers() {
+        final IconCache icons = IconCache.get(this);
+        memory.register("icons", new MemoryManager.Tier() {
+            @Override
+            public void trim(int step) {
+                icons.trim(step);
+            }
+
+            @Override
+            public long footprint() {
+                return icons.footprint();
+            }
+        });
+        memory.register("atlas", new MemoryManager.Tier() {
+            @Override
+            public void trim(int step) {
+                if (appList != null) appList.trimMemory(step);
+            }
+
+            @Override
+            public long footprint() {
+                return appList != null ? appList.atlasFootprint() : 0;
+            }
+        });
+        memory.register("wallpaper", new MemoryManager.Tier() {
+            @Override
+            public void trim(int step) {
+                // Only once nobody sees it, the raw pixel cache brings it back quickly
+                if (step < MemoryManager.STEP_HIDDEN || wallpaper == null) return;
+                getWindow().setBackgroundDrawableResource(android.R.color.black);
+                wallpaper = null;
+                wallpaperDropped = true;
+            }
+
+            @Override
+            public long footprint() {
+                return wallpaper != null ? wallpaper.getByteCount() : 0;
+            }
+        });
+        memory.register("widgets", new MemoryManager.Tier() {
+            @Override
+            public void trim(int step) {
+                if (step >= MemoryManager.STEP_HIDDEN) widgetHost.releaseCaches();
+            }
+
+            @Override
+            public long footprint() {
+                return widgetHost.getCacheBytes();
+            }
+        });
+        memory.register("tasks", new MemoryManager.Tier() {
+            @Override
+            public void trim(int step) {
+                if (tasks == null) return;
+                if (step >= MemoryManager.STEP_HIDDEN || screens.getCurrent() != tasks) tasks.releaseSnapshot();
+            }
+
+            @Override
+            public long footprint() {
+                return tasks != null ? tasks.footprint() : 0;
+            }
+        });
+        memory.register("screens", new MemoryManager.Tier() {
+            @Override
+            public void trim(int step) {
+                if (step >= MemoryManager.STEP_EVERYTHING) freeScreens(true);
+                else if (step >= MemoryManager.STEP_CRITICAL) freeScreens(false);
+            }
+
+            @Override
+            public long footprint() {
+                return -1;
+            }
+        });
+    }
 
+    // Drops the deferred screens that are not shown, the ensure methods build them again.
+    // The warm one (usually the grid) is kept unless includeWarm is set.
+    private void freeScreens(boolean includeWarm) {
+        View current = screens.getCurrent();
+        if (appList != null && appList != current && (includeWarm || appList.getVisibility() == View.GONE)) {
+            screens.remove(appList);
+            appList.release();
+            appList = null;
+        }
+        if (tasks != null && tasks != current && (includeWarm || tasks.getVisibility() == View.GONE)) {
+            screens.remove(tasks);
+            tasks.release();
+            tasks = null;
+        }
+        if (dialerView != null && dialerView != current && (includeWarm || dialerView.getVisibility() == View.GONE)) {
+            screens.remove(dialerView);
+            dialerView = null;
+        }
+    }
+
+    private void checkUsageAccess() {
         // Prompt user to grant Usage Access if needed
         AppOpsManager appOps = (AppOpsManager) getSystemService(Context.APP_OPS_SERVICE);
         int mode = appOps.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
@@ -270,21 +444,67 @@ public class Launcher extends Activity {
             Intent intent = new Intent(Settings.ACTION_USAGE_ACCESS_SETTINGS);
             startActivity(intent);
         }
+    }
 
-        // Initialize views
-        dialerView = new DialerView(getApplicationContext());
-        tasks = new Tasks(this);
+    // One step per idle callback, so a key press is never stuck behind the whole batch
+    private final MessageQueue.IdleHandler deferredInit = new MessageQueue.IdleHandler() {
+        private int step;
 
-        tasks.setFocusable(true);
-        dialerView.setFocusable(true);
+        @Override
+        public boolean queueIdle() {
+            if (isFinishing()) return false;
+            switch (step++) {
+                case 0: ensureAppList(); return true;
+                case 1: ensureTasks(); return true;
+                case 2: ensureDialer(); return true;
+                default:
+                    checkUsageAccess();
+                    StartupTrace.mark("deferred init done");
+                    return false;
+            }
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        StartupTrace.startSession();
+        JankWatchdog.start(this, getIntent());
 
+        // Only the home screen is built before the first frame
+        StartupTrace.begin("home");
+        widgetHost = new WidgetHost(this);
         launcherView = new LauncherView(getApplicationContext());
-        appList = new AppListView(this);
-        appList.setFocusable(true);
         launcherView.setFocusable(true);
-        launcherView.requestFocus();
 
+        screens = new ScreenManager(this);
+        screens.add(launcherView, null);
+        setContentView(screens.getContainer());
+
+        launcherView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                launcherView.getViewTreeObserver().removeOnPreDrawListener(this);
+                StartupTrace.mark("first frame");
+                Looper.myQueue().addIdleHandler(deferredInit);
+                return true;
+            }
+        });
+
+        StartupTrace.begin("wallpaper");
         cachedBackground = getWindow().getDecorView().getBackground();
+        wallpaperStage = new WallpaperStage(this, new WallpaperStage.Listener() {
+            @Override
+            public void onWallpaperReady(Bitmap wallpaper) {
+                Launcher.this.wallpaper = wallpaper;
+                if (wallpaper != null) {
+                    // Already screen sized, so transitions blit it without scaling
+                    getWindow().setBackgroundDrawable(new BitmapDrawable(getResources(), wallpaper));
+                } else {
+                    getWindow().setBackgroundDrawableResource(android.R.color.black);
+                }
+            }
+        });
 
         // Check and request permission for wallpaper access on Android 6.0+
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
@@ -305,9 +525,62 @@ public class Launcher extends Activity {
             loadWallpaper();
         }
 
+        StartupTrace.end();
+        registerMemoryTiers();
         switchToHome();
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        widgetHost.onResume();
+        JankWatchdog.setResumed(true);
+        if (wallpaperDropped) {
+            wallpaperDropped = false;
+            wallpaperStage.reload(); // Raw pixels from the cache, a few ms
+        }
+        // Coming back from an app changes the recents, have them ready before DPAD_UP
+        if (tasks != null) tasks.refresh();
+    }
+
+    @Override
+    protected void onPause() {
+        widgetHost.onPause();
+        JankWatchdog.setResumed(false);
+        super.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        widgetHost.onDestroy();
+        wallpaperStage.release();
+        Looper.myQueue().removeIdleHandler(deferredInit);
+        if (appList != null) appList.release();
+        if (tasks != null) tasks.release();
+        super.onDestroy();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        memory.onTrimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        memory.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        StartupTrace.dump(prefix, writer);
+        PerfCounters.dump(prefix, writer);
+        JankWatchdog.dump(prefix, writer);
+        memory.dump(prefix, writer);
+    }
+
     @Override
     public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
@@ -326,21 +599,8 @@ public class Launcher extends Activity {
     }
 
     private void loadWallpaper() {
-        try {
-            Drawable wallpaper = getWallpaper();
-            if (wallpaper != null) {
-                getWindow().setBackgroundDrawable(wallpaper);
-            } else {
-                getWindow().setBackgroundDrawableResource(android.R.color.black);
-            }
-        } catch (SecurityException e) {
-            // Permission denied or wallpaper not accessible
-            Log.e(TAG, "Failed to load wallpaper: " + e.getMessage());
-            getWindow().setBackgroundDrawableResource(android.R.color.black);
-        } catch (Exception e) {
-            // Any other error loading wallpaper
-            Log.e(TAG, "Error loading wallpaper: " + e.getMessage());
-            getWindow().setBackgroundDrawableResource(android.R.color.black);
-        }
+        // The decor is not laid out yet, but it fills the app area of the display
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        wallpaperStage.load(metrics.widthPixels, metrics.heightPixels);
     }
 }
@@ -0,0 +1,89 @@
+package com.monobogdan.monolaunch;
+
+import android.content.ComponentCallbacks2;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns the system's trim levels into a few graded steps and hands them to every cache the
+ * launcher holds.
+ *
+ * Each tier decides what a step means for it. The steps go from halving caches while we
+ * are in front, through dropping what is cheap to rebuild once the UI is hidden, to
+ * freeing everything but the current screen right before the low memory killer would pick
+ * us. A step never frees less than the ones below it, so tiers compare with {@code >=}. Giving memory back early keeps the launcher alive, and a warm launcher beats a cold
+ * start on 512 MB devices.
+ */
+class MemoryManager {
+
+    interface Tier {
+        /** Main thread. One of the STEP_ constants. */
+        void trim(int step);
+
+        /** Bytes currently held, roughly, or -1 when the tier cannot tell. */
+        long footprint();
+    }
+
+    static final int STEP_NONE = 0;
+    static final int STEP_SHRINK = 1;     // Still in front, the system is getting low: halve caches
+    static final int STEP_CRITICAL = 2;   // Still in front and close to the limit: keep only what is shown
+    static final int STEP_HIDDEN = 3;     // UI gone: also drop bitmaps that are rebuilt when we come back
+    static final int STEP_EVERYTHING = 4; // Next in line to be killed: free all but the current screen
+    private static final String[] STEP_NAMES = {"none", "shrink", "critical", "hidden", "everything"};
+
+    private static final String TAG = "MemoryManager";
+
+    private final Map<String, Tier> tiers = new LinkedHashMap<>();
+    private int lastLevel = -1;
+    private long lastTrimTime;
+
+    static int stepOf(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) return STEP_EVERYTHING;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) return STEP_HIDDEN;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) return STEP_CRITICAL;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) return STEP_SHRINK;
+        return STEP_NONE;
+    }
+
+    /** Registering a name again replaces the previous tier. */
+    void register(String name, Tier tier) {
+        tiers.put(name, tier);
+    }
+
+    void unregister(String name) {
+        tiers.remove(name);
+    }
+
+    /** Main thread. {@code level} is a ComponentCallbacks2.TRIM_MEMORY_ constant. */
+    void onTrimMemory(int level) {
+        int step = stepOf(level);
+        lastLevel = level;
+        lastTrimTime = SystemClock.uptimeMillis();
+        if (step == STEP_NONE) return;
+
+        long before = footprint();
+        for (Tier tier : tiers.values()) tier.trim(step);
+        Log.i(TAG, "Trim level " + level + " (" + STEP_NAMES[step] + "): "
+                + before / 1024 + " KB -> " + footprint() / 1024 + " KB");
+    }
+
+    long footprint() {
+        long total = 0;
+        for (Tier tier : tiers.values()) total += Math.max(0, tier.footprint());
+        return total;
+    }
+
+    void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Memory: " + footprint() / 1024 + " KB held, last trim level " + lastLevel
+                + (lastLevel >= 0 ? " " + (SystemClock.uptimeMillis() - lastTrimTime) / 1000 + " s ago" : ""));
+        for (Map.Entry<String, Tier> e : tiers.entrySet()) {
+            long bytes = e.getValue().footprint();
+            writer.println(prefix + String.format(Locale.US, "  %-12s %9s", e.getKey(), bytes < 0 ? "-" : bytes / 1024 + " KB"));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.monobogdan.monolaunch;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Cheap counters for the work a user action causes, checked against per-action budgets.
+ *
+ * Hot paths bump a counter (row inflations, binds, bitmap allocations, widget repaints,
+ * full adapter refreshes). A key handler opens an action; it closes when the frame after
+ * the action's first frame starts, so the layout and draw it caused are included. An
+ * action over budget is logged, and the last actions are printed by Launcher.dump().
+ * Debug builds only: in release builds nothing is counted, no frame callback is posted
+ * and nothing is logged. The Robolectric suite checks the budgets on every test run.
+ */
+public final class PerfCounters {
+
+    public static final int INFLATE = 0;
+    public static final int BIND = 1;
+    public static final int BITMAP = 2;
+    public static final int INVALIDATE = 3;
+    public static final int NOTIFY = 4;
+    static final int COUNTERS = 5;
+    static final String[] NAMES = {"inflate", "bind", "bitmap", "invalidate", "notify"};
+
+    private static final String TAG = "PerfCounters";
+    private static final int HISTORY = 16;
+    static final int UNBOUNDED = -1;
+
+    // Tests switch it on whatever the build type
+    static boolean enabled = BuildConfig.DEBUG;
+
+    // inflate, bind, bitmap, invalidate, notify, then ms. Bitmaps include background decodes.
+    private static final Map<String, int[]> BUDGETS = new HashMap<>();
+
+    static {
+        // The grid is kept laid out behind home, so opening it should not build a page
+        budget("grid.open", 0, UNBOUNDED, UNBOUNDED, UNBOUNDED, 0, 50);
+        budget("grid.scroll", 5, UNBOUNDED, UNBOUNDED, UNBOUNDED, 0, 16);
+        budget("grid.search", 24, UNBOUNDED, 0, UNBOUNDED, 1, 16);
+        budget("tasks.open", 12, UNBOUNDED, UNBOUNDED, UNBOUNDED, 1, 50);
+        // Only the old and the new row are touched
+        budget("tasks.move", 0, 0, 0, UNBOUNDED, 0, 16);
+        budget("home.open", 0, UNBOUNDED, 0, UNBOUNDED, 0, 50);
+    }
+
+    private static final AtomicIntegerArray totals = new AtomicIntegerArray(COUNTERS);
+
+    // Actions are opened and closed on the main thread only
+    private static String action;
+    private static int actionToken;
+    private static long actionStart;
+    private static final int[] actionBase = new int[COUNTERS];
+
+    private static final String[] historyNames = new String[HISTORY];
+    private static final int[][] historyCounts = new int[HISTORY][COUNTERS + 1];
+    private static final boolean[] historyOver = new boolean[HISTORY];
+    private static int historyNext;
+    private static int historySize;
+
+    private PerfCounters() {
+    }
+
+    private static void budget(String name, int inflate, int bind, int bitmap, int invalidate, int notify, int ms) {
+        BUDGETS.put(name, new int[]{inflate, bind, bitmap, invalidate, notify, ms});
+    }
+
+    /** Any thread. */
+    public static void count(int counter) {
+        if (enabled) totals.incrementAndGet(counter);
+    }
+
+    /** Main thread. Starting an action closes the previous one early. */
+    static void beginAction(String name) {
+        if (!enabled) return;
+        if (action != null) endAction();
+        action = name;
+        actionStart = SystemClock.uptimeMillis();
+        for (int i = 0; i < COUNTERS; i++) actionBase[i] = totals.get(i);
+
+        final int token = ++actionToken;
+        final Choreographer choreographer = Choreographer.getInstance();
+        choreographer.postFrameCallback(new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                // The action's frame is being drawn, close at the start of the next one
+                choreographer.postFrameCallback(new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        if (token == actionToken && action != null) endAction();
+                    }
+                });
+            }
+        });
+    }
+
+    private static void endAction() {
+        int slot = historyNext;
+        int[] counts = historyCounts[slot];
+        for (int i = 0; i < COUNTERS; i++) counts[i] = totals.get(i) - actionBase[i];
+        counts[COUNTERS] = (int) (SystemClock.uptimeMillis() - actionStart);
+
+        int[] budget = BUDGETS.get(action);
+        boolean over = false;
+        for (int i = 0; budget != null && i <= COUNTERS; i++) {
+            if (budget[i] == UNBOUNDED || counts[i] <= budget[i]) continue;
+            over = true;
+            Log.w(TAG, action + ": " + (i < COUNTERS ? NAMES[i] : "ms") + " " + counts[i]
+                    + " over budget " + budget[i]);
+        }
+
+        historyNames[slot] = action;
+        historyOver[slot] = over;
+        historyNext = (historyNext + 1) % HISTORY;
+        if (historySize < HISTORY) historySize++;
+        action = null;
+    }
+
+    static void dump(String prefix, PrintWriter writer) {
+        if (!enabled) {
+            writer.println(prefix + "Perf counters: off in release builds");
+            return;
+        }
+        StringBuilder line = new StringBuilder(prefix).append("Perf counters:");
+        for (int i = 0; i < COUNTERS; i++) line.append(' ').append(NAMES[i]).append('=').append(totals.get(i));
+        writer.println(line);
+
+        writer.println(prefix + "Last actions (inflate bind bitmap invalidate notify ms):");
+        for (int i = 0; i < historySize; i++) {
+            int slot = (historyNext - historySize + i + HISTORY) % HISTORY;
+            int[] c = historyCounts[slot];
+            writer.println(prefix + String.format(Locale.US, "  %-12s %4d %4d %4d %4d %4d %5d%s",
+                    historyNames[slot], c[0], c[1], c[2], c[3], c[4], c[5],
+                    historyOver[slot] ? "  OVER BUDGET" : ""));
+        }
+    }
+
+    // --- Tests ---
+
+    /** Main thread. Closes the open action now instead of on its next frame. */
+    static void finishAction() {
+        if (action != null) endAction();
+    }
+
+    static String lastActionName() {
+        return historySize > 0 ? historyNames[(historyNext - 1 + HISTORY) % HISTORY] : null;
+    }
+
+    /** Counts of the last closed action: one per counter, then ms. */
+    static int[] lastActionCounts() {
+        return historySize > 0 ? historyCounts[(historyNext - 1 + HISTORY) % HISTORY].clone() : null;
+    }
+
+    /** Same layout as {@link #lastActionCounts}, {@link #UNBOUNDED} where there is no limit. */
+    static int[] budgetOf(String name) {
+        return BUDGETS.get(name);
+    }
+}
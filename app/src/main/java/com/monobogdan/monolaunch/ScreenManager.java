@@ -0,0 +1,117 @@
+package com.monobogdan.monolaunch;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewPropertyAnimator;
+import android.widget.FrameLayout;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps every launcher screen attached in one container and switches between them.
+ *
+ * Switching only changes visibility, so nothing is re-attached or re-inflated. The screen
+ * that is likely to come next is kept INVISIBLE rather than GONE: it stays measured and
+ * laid out, and appears without a layout pass. Enter animations run on a hardware layer,
+ * and a switch cancels whatever is still animating so fast key presses never queue up.
+ */
+class ScreenManager {
+
+    static final int ENTER_FADE = 0;
+    static final int ENTER_FROM_BOTTOM = 1;
+    static final int ENTER_FROM_RIGHT = 2;
+
+    private final FrameLayout container;
+    private final List<View> screens = new ArrayList<>();
+    private final Map<View, View> likelyNext = new HashMap<>();
+    private View current;
+
+    ScreenManager(Context context) {
+        container = new FrameLayout(context);
+    }
+
+    ViewGroup getContainer() {
+        return container;
+    }
+
+    View getCurrent() {
+        return current;
+    }
+
+    /** Adds a hidden screen. {@code next} is warmed up while this one is shown, may be null. */
+    void add(View screen, View next) {
+        screen.setVisibility(View.GONE);
+        container.addView(screen, new FrameLayout.LayoutParams(
+                FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
+        screens.add(screen);
+        likelyNext.put(screen, next);
+    }
+
+    /** For screens created after {@code screen}, warms {@code next} right away if it is showing. */
+    void setLikelyNext(View screen, View next) {
+        View old = likelyNext.put(screen, next);
+        if (screen != current) return;
+        if (old != null && old != next) old.setVisibility(View.GONE);
+        if (next != null) next.setVisibility(View.INVISIBLE);
+    }
+
+    /** Detaches a screen that is not the current one, e.g. to free it under memory pressure. */
+    void remove(View screen) {
+        settle(screen);
+        container.removeView(screen);
+        screens.remove(screen);
+        likelyNext.remove(screen);
+        for (Map.Entry<View, View> e : likelyNext.entrySet()) {
+            if (e.getValue() == screen) e.setValue(null);
+        }
+    }
+
+    void show(View screen, int enter, long duration) {
+        View warm = likelyNext.get(screen);
+        for (View v : screens) {
+            if (v == screen) continue;
+            settle(v);
+            v.setVisibility(v == warm ? View.INVISIBLE : View.GONE);
+        }
+
+        if (screen == current) {
+            screen.requestFocus();
+            return;
+        }
+        current = screen;
+        settle(screen);
+        screen.setVisibility(View.VISIBLE);
+        screen.requestFocus();
+
+        ViewPropertyAnimator animator = screen.animate();
+        switch (enter) {
+            case ENTER_FROM_BOTTOM:
+                if (container.getHeight() == 0) return; // Not laid out yet, nothing to slide
+                screen.setTranslationY(container.getHeight());
+                animator.translationY(0);
+                break;
+            case ENTER_FROM_RIGHT:
+                if (container.getWidth() == 0) return;
+                screen.setTranslationX(container.getWidth());
+                animator.translationX(0);
+                break;
+            default:
+                screen.setAlpha(0);
+                animator.alpha(1.0f);
+                break;
+        }
+        animator.setDuration(duration).withLayer();
+    }
+
+    // Stops a running animation and puts the screen in its resting state
+    private static void settle(View v) {
+        v.animate().cancel();
+        v.setAlpha(1.0f);
+        v.setTranslationX(0);
+        v.setTranslationY(0);
+    }
+}
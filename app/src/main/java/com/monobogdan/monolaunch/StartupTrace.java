@@ -0,0 +1,79 @@
+package com.monobogdan.monolaunch;
+
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Startup phase timings kept in a small ring buffer.
+ *
+ * Every Launcher.onCreate opens a session; phases are timed relative to it, and instants
+ * such as the first frame are recorded as zero-length marks. The buffer outlives the
+ * activity, so a recreation does not lose the cold start, and is printed by
+ * {@code adb shell dumpsys activity com.monobogdan.monolaunch}.
+ */
+final class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+    private static final int CAPACITY = 64;
+
+    private static final int[] sessions = new int[CAPACITY];
+    private static final String[] names = new String[CAPACITY];
+    private static final long[] offsets = new long[CAPACITY];   // Since session start, ns
+    private static final long[] durations = new long[CAPACITY]; // ns, 0 for marks
+    private static int next;
+    private static int size;
+
+    private static int session;
+    private static long sessionStart;
+    private static String phase;
+    private static long phaseStart;
+
+    private StartupTrace() {
+    }
+
+    static synchronized void startSession() {
+        session++;
+        sessionStart = System.nanoTime();
+        phase = null;
+    }
+
+    /** Ends the running phase, if any, and starts timing the next one. */
+    static synchronized void begin(String name) {
+        end();
+        phase = name;
+        phaseStart = System.nanoTime();
+    }
+
+    static synchronized void end() {
+        if (phase == null) return;
+        add(phase, phaseStart, System.nanoTime() - phaseStart);
+        phase = null;
+    }
+
+    /** Records a point in time, e.g. the first frame. */
+    static synchronized void mark(String name) {
+        long now = System.nanoTime();
+        add(name, now, 0);
+        Log.i(TAG, name + " at " + (now - sessionStart) / 1000000 + " ms");
+    }
+
+    private static void add(String name, long start, long duration) {
+        sessions[next] = session;
+        names[next] = name;
+        offsets[next] = start - sessionStart;
+        durations[next] = duration;
+        next = (next + 1) % CAPACITY;
+        if (size < CAPACITY) size++;
+    }
+
+    static synchronized void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Startup trace (session, offset ms, duration ms, phase):");
+        for (int i = 0; i < size; i++) {
+            int slot = (next - size + i + CAPACITY) % CAPACITY;
+            writer.println(prefix + String.format(Locale.US, "  #%d %8.1f %8.1f  %s",
+                    sessions[slot], offsets[slot] / 1e6, durations[slot] / 1e6, names[slot]));
+        }
+    }
+}
@@ -8,10 +8,9 @@ import android.content.Intent;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.View;
@@ -23,7 +22,11 @@ import android.widget.TextView;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class Tasks extends ListView {
 
@@ -31,12 +34,30 @@ public class Tasks extends ListView {
         public String name;
         public String packageName;
         public Bitmap icon;
-        public int id;
+        public long lastUpdateTime;
     }
 
+    static class TaskHolder {
+        ImageView icon;
+        TextView name;
+    }
+
+    private static final int TYPE_TASK = 0;
+    private static final int TYPE_EMPTY = 1;
+
     private Launcher launcher;
     private BaseAdapter adapterImpl;
     private ArrayList<AppTask> tasks;
+    private IconCache icons;
+    private UsageModel usage;
+
+    private static final int MAX_TASKS = 50;
+
+    // The list on screen is a snapshot, refreshes are built here and applied as a diff
+    private ExecutorService worker;
+    private Handler mainHandler;
+    private int refreshGeneration = 0;
+    private boolean hasLoaded = false;
 
     // Track current DPAD selection
     private int selectedIndex = 0;
@@ -47,6 +68,11 @@ public class Tasks extends ListView {
         setBackgroundColor(Color.BLACK);
 
         tasks = new ArrayList<>();
+        icons = IconCache.get(launcher);
+        icons.addUser(iconUser);
+        usage = UsageModel.get(launcher);
+        worker = Executors.newSingleThreadExecutor();
+        mainHandler = new Handler(Looper.getMainLooper());
 
         adapterImpl = new BaseAdapter() {
             @Override
@@ -64,30 +90,56 @@ public class Tasks extends ListView {
                 return position;
             }
 
+            @Override
+            public int getViewTypeCount() {
+                return 2;
+            }
+
+            @Override
+            public int getItemViewType(int position) {
+                return tasks.isEmpty() ? TYPE_EMPTY : TYPE_TASK;
+            }
+
+            @Override
+            public void notifyDataSetChanged() {
+                PerfCounters.count(PerfCounters.NOTIFY);
+                super.notifyDataSetChanged();
+            }
+
             @SuppressLint("MissingInflatedId")
             @Override
             public View getView(int position, View convertView, ViewGroup parent) {
+                PerfCounters.count(PerfCounters.BIND);
+                if (convertView == null) PerfCounters.count(PerfCounters.INFLATE);
                 if (tasks.isEmpty()) {
-                    TextView empty = new TextView(getContext());
-                    empty.setText("No apps available.\nPlease grant Usage Access in Settings.");
-                    empty.setTextColor(Color.WHITE);
-                    empty.setTextSize(18f);
-                    empty.setPadding(50, 50, 50, 50);
+                    TextView empty = (TextView) convertView;
+                    if (empty == null) {
+                        empty = new TextView(getContext());
+                        empty.setTextColor(Color.WHITE);
+                        empty.setTextSize(18f);
+                        empty.setPadding(50, 50, 50, 50);
+                    }
+                    empty.setText(hasLoaded ? "No apps available.\nPlease grant Usage Access in Settings." : "");
                     return empty;
                 }
 
-                AppTask task = tasks.get(position);
-                View view = launcher.getLayoutInflater().inflate(R.layout.task, parent, false);
-                ((ImageView) view.findViewById(R.id.app_icon)).setImageBitmap(task.icon);
-                ((TextView) view.findViewById(R.id.app_name)).setText(task.name);
-
-                // Highlight currently selected DPAD item
-                if (position == selectedIndex) {
-                    view.setBackgroundColor(Color.DKGRAY);
+                View view = convertView;
+                TaskHolder holder;
+                if (view == null) {
+                    view = launcher.getLayoutInflater().inflate(R.layout.task, parent, false);
+                    holder = new TaskHolder();
+                    holder.icon = view.findViewById(R.id.app_icon);
+                    holder.name = view.findViewById(R.id.app_name);
+                    view.setTag(holder);
                 } else {
-                    view.setBackgroundColor(Color.TRANSPARENT);
+                    holder = (TaskHolder) view.getTag();
                 }
 
+                AppTask task = tasks.get(position);
+                bindIcon(holder.icon, task);
+                holder.name.setText(task.name);
+                setHighlight(view, position == selectedIndex);
+
                 return view;
             }
         };
@@ -98,76 +150,238 @@ public class Tasks extends ListView {
     }
 
     public void updateTaskList() {
-        tasks.clear();
-        selectedIndex = 0;
-        PackageManager pacMan = getContext().getPackageManager();
+        // Show the last snapshot right away, fresh data lands as a diff
+        moveSelection(0);
+        refresh();
+    }
 
-        UsageStatsManager usageStatsManager = (UsageStatsManager) getContext().getSystemService(Context.USAGE_STATS_SERVICE);
-        long now = System.currentTimeMillis();
+    /** Rebuilds the task list on the worker thread, e.g. to have it warm before it is shown. */
+    public void refresh() {
+        final int generation = ++refreshGeneration;
+        final Map<String, AppTask> known = new HashMap<>();
+        for (AppTask task : tasks) known.put(task.packageName, task);
+
+        worker.execute(() -> {
+            long start = JankWatchdog.begin(JankWatchdog.OP_TASK_LIST);
+            final ArrayList<AppTask> fresh = buildTaskList(known);
+            JankWatchdog.end(JankWatchdog.OP_TASK_LIST, start);
+            mainHandler.post(() -> {
+                if (generation != refreshGeneration) return;
+                JankWatchdog.tag(JankWatchdog.OP_TASK_LIST); // Timed once, on the worker
+                applyTaskList(fresh);
+            });
+        });
+    }
 
-        List<UsageStats> stats = usageStatsManager.queryUsageStats(
-                UsageStatsManager.INTERVAL_DAILY, now - 1000 * 60 * 60 * 24, now
-        );
+    // Runs on the worker thread. Tasks whose package did not change are reused as-is
+    private ArrayList<AppTask> buildTaskList(Map<String, AppTask> known) {
+        ArrayList<AppTask> result = new ArrayList<>();
+        PackageManager pacMan = getContext().getPackageManager();
 
-        if (stats == null || stats.isEmpty()) {
+        // Our own launch history first, UsageStats only seeds it on first run
+        List<String> recent = usage.recent(MAX_TASKS + 2);
+        if (recent.isEmpty()) recent = seedFromUsageStats();
+
+        if (recent.isEmpty()) {
             Log.d("Tasks", "No apps found or Usage Access not granted!");
-            adapterImpl.notifyDataSetChanged();
-            return;
+            return result;
         }
 
-        Collections.sort(stats, (a, b) -> Long.compare(b.getLastTimeUsed(), a.getLastTimeUsed()));
-
-        int count = 0;
-        for (UsageStats us : stats) {
-            if (count >= 10) break;
-            String pkgName = us.getPackageName();
+        for (String pkgName : recent) {
+            if (result.size() >= MAX_TASKS) break;
 
             if (pkgName.equals("com.monobogdan.monolaunch") || pkgName.equals("com.sprd.simple.launcher"))
                 continue;
 
             try {
                 PackageInfo pacInfo = pacMan.getPackageInfo(pkgName, 0);
+                AppTask cached = known.get(pkgName);
+                if (cached != null && cached.lastUpdateTime == pacInfo.lastUpdateTime) {
+                    result.add(cached);
+                    continue;
+                }
+
                 AppTask appInfo = new AppTask();
                 appInfo.name = pacMan.getApplicationLabel(pacInfo.applicationInfo).toString();
                 appInfo.packageName = pkgName;
-                
-                // FIXED: Safe icon handling for AdaptiveIconDrawable
+                appInfo.lastUpdateTime = pacInfo.lastUpdateTime;
+
+                // Shared with the app grid, already scaled and usually on disk
                 try {
-                    Drawable appIcon = pacInfo.applicationInfo.loadIcon(pacMan);
-                    Bitmap iconBitmap;
-                    
-                    if (appIcon instanceof BitmapDrawable) {
-                        iconBitmap = ((BitmapDrawable) appIcon).getBitmap();
-                    } else {
-                        // Handle AdaptiveIconDrawable and other types
-                        int size = (int) (48 * getResources().getDisplayMetrics().density);
-                        iconBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
-                        Canvas canvas = new Canvas(iconBitmap);
-                        appIcon.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
-                        appIcon.draw(canvas);
+                    Bitmap iconBitmap = icons.get(pkgName, pacInfo.lastUpdateTime);
+                    if (iconBitmap == null) {
+                        iconBitmap = icons.put(pkgName, pacInfo.lastUpdateTime,
+                                pacInfo.applicationInfo.loadIcon(pacMan));
                     }
-                    
                     appInfo.icon = iconBitmap;
-                    
+
                 } catch (Exception e) {
                     Log.e("Tasks", "Error loading icon for " + pkgName + ": " + e.getMessage());
                     appInfo.icon = Bitmap.createBitmap(48, 48, Bitmap.Config.ARGB_8888);
                 }
-                
-                appInfo.id = count;
-                tasks.add(appInfo);
-                count++;
+
+                result.add(appInfo);
             } catch (PackageManager.NameNotFoundException e) {
                 Log.e("Tasks", "Package not found: " + pkgName);
             }
         }
+        return result;
+    }
+
+    // The snapshot holds icons outside the cache, they must not be pooled while it does
+    private final IconCache.User iconUser = new IconCache.User() {
+        @Override
+        public boolean isUsing(Bitmap b) {
+            for (int i = 0; i < tasks.size(); i++) {
+                if (tasks.get(i).icon == b) return true;
+            }
+            return false;
+        }
+    };
+
+    private void applyTaskList(ArrayList<AppTask> fresh) {
+        boolean firstLoad = !hasLoaded;
+        hasLoaded = true;
+
+        // An icon evicted since the worker read it may already draw another package. Those
+        // rows show a placeholder until the worker has loaded the icon again.
+        List<AppTask> missing = new ArrayList<>();
+        List<AppTask> iconChanged = new ArrayList<>();
+        for (AppTask task : fresh) {
+            Bitmap cached = icons.getCached(task.packageName);
+            if (cached != task.icon) iconChanged.add(task);
+            task.icon = cached;
+            if (cached == null) missing.add(task);
+        }
+        if (!missing.isEmpty()) reloadIcons(missing);
+
+        boolean sameRows = fresh.size() == tasks.size();
+        for (int i = 0; sameRows && i < fresh.size(); i++) {
+            sameRows = fresh.get(i).packageName.equals(tasks.get(i).packageName);
+        }
 
+        if (sameRows) {
+            // Same packages in the same order, only rebind rows whose content was rebuilt
+            for (int i = 0; i < fresh.size(); i++) {
+                if (fresh.get(i) == tasks.get(i) && !iconChanged.contains(fresh.get(i))) continue;
+                tasks.set(i, fresh.get(i));
+                rebindRow(i);
+            }
+            if (firstLoad && tasks.isEmpty()) adapterImpl.notifyDataSetChanged();
+            return;
+        }
+
+        tasks.clear();
+        tasks.addAll(fresh);
+        selectedIndex = Math.max(0, Math.min(selectedIndex, tasks.size() - 1));
         adapterImpl.notifyDataSetChanged();
+        if (!tasks.isEmpty()) setSelection(selectedIndex);
+    }
+
+    private void rebindRow(int position) {
+        View row = getRow(position);
+        if (row == null) return; // Off screen, getView binds it when it scrolls in
+        AppTask task = tasks.get(position);
+        TaskHolder holder = (TaskHolder) row.getTag();
+        bindIcon(holder.icon, task);
+        holder.name.setText(task.name);
+    }
+
+    private static void bindIcon(ImageView view, AppTask task) {
+        if (task.icon != null) view.setImageBitmap(task.icon);
+        else view.setImageResource(android.R.drawable.sym_def_app_icon);
+    }
+
+    // Disk and PackageManager on the worker, the main thread only takes what the cache holds
+    private void reloadIcons(final List<AppTask> missing) {
+        final PackageManager pacMan = getContext().getPackageManager();
+        worker.execute(() -> {
+            for (AppTask task : missing) {
+                if (icons.get(task.packageName, task.lastUpdateTime) != null) continue;
+                try {
+                    icons.put(task.packageName, task.lastUpdateTime, pacMan.getApplicationIcon(task.packageName));
+                } catch (PackageManager.NameNotFoundException e) {
+                    Log.e("Tasks", "Package not found: " + task.packageName);
+                }
+            }
+            mainHandler.post(() -> {
+                for (AppTask task : missing) {
+                    int position = tasks.indexOf(task);
+                    Bitmap b = icons.getCached(task.packageName);
+                    if (position < 0 || b == null) continue;
+                    task.icon = b;
+                    rebindRow(position);
+                }
+            });
+        });
+    }
+
+    // Only the old and the new row are touched, whatever the list length
+    private void moveSelection(int index) {
+        if (tasks.isEmpty()) {
+            selectedIndex = 0;
+            return;
+        }
+        View old = getRow(selectedIndex);
+        if (old != null) setHighlight(old, false);
+
+        selectedIndex = Math.max(0, Math.min(index, tasks.size() - 1));
+        if (selectedIndex < getFirstVisiblePosition() || selectedIndex > getLastVisiblePosition()) {
+            setSelection(selectedIndex); // Scrolls, getView highlights the row it binds
+        }
+        View current = getRow(selectedIndex);
+        if (current != null) setHighlight(current, true);
+    }
 
-        // Auto-select first item
-        if (!tasks.isEmpty()) {
-            setSelection(selectedIndex);
+    private View getRow(int position) {
+        if (position < getFirstVisiblePosition() || position > getLastVisiblePosition()) return null;
+        View row = getChildAt(position - getFirstVisiblePosition());
+        return row != null && row.getTag() instanceof TaskHolder ? row : null;
+    }
+
+    private static void setHighlight(View row, boolean selected) {
+        // Highlight currently selected DPAD item
+        row.setBackgroundColor(selected ? Color.DKGRAY : Color.TRANSPARENT);
+    }
+
+    void release() {
+        worker.shutdown();
+        icons.removeUser(iconUser);
+    }
+
+    /** Drops the snapshot and the icons it holds, the next refresh builds it again. */
+    void releaseSnapshot() {
+        tasks.clear();
+        hasLoaded = false;
+        adapterImpl.notifyDataSetChanged();
+    }
+
+    // Icons still in the IconCache are counted there
+    long footprint() {
+        long bytes = 0;
+        for (AppTask task : tasks) {
+            if (task.icon != null && task.icon != icons.getCached(task.packageName)) bytes += task.icon.getByteCount();
+        }
+        return bytes;
+    }
+
+    private List<String> seedFromUsageStats() {
+        List<String> packages = new ArrayList<>();
+        UsageStatsManager usageStatsManager = (UsageStatsManager) getContext().getSystemService(Context.USAGE_STATS_SERVICE);
+        long now = System.currentTimeMillis();
+
+        List<UsageStats> stats = usageStatsManager.queryUsageStats(
+                UsageStatsManager.INTERVAL_DAILY, now - 1000 * 60 * 60 * 24, now
+        );
+        if (stats == null || stats.isEmpty()) return packages;
+
+        Collections.sort(stats, (a, b) -> Long.compare(b.getLastTimeUsed(), a.getLastTimeUsed()));
+        for (UsageStats us : stats) {
+            if (us.getLastTimeUsed() <= 0) continue;
+            usage.seed(us.getPackageName(), us.getLastTimeUsed());
+            packages.add(us.getPackageName());
         }
+        return packages;
     }
 
     @Override
@@ -188,21 +402,20 @@ public class Tasks extends ListView {
                 if (open != null) {
                     open.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
                     getContext().startActivity(open);
+                    usage.recordLaunch(tasks.get(selectedIndex).packageName);
                 } else {
                     Log.d("Tasks", "App not found: " + tasks.get(selectedIndex).packageName);
                 }
                 return true;
 
             case KeyEvent.KEYCODE_DPAD_UP:
-                if (selectedIndex > 0) selectedIndex--;
-                adapterImpl.notifyDataSetChanged();
-                setSelection(selectedIndex);
+                PerfCounters.beginAction("tasks.move");
+                moveSelection(selectedIndex - 1);
                 return true;
 
             case KeyEvent.KEYCODE_DPAD_DOWN:
-                if (selectedIndex < tasks.size() - 1) selectedIndex++;
-                adapterImpl.notifyDataSetChanged();
-                setSelection(selectedIndex);
+                PerfCounters.beginAction("tasks.move");
+                moveSelection(selectedIndex + 1);
                 return true;
         }
 
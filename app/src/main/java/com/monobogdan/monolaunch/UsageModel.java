@@ -0,0 +1,215 @@
+package com.monobogdan.monolaunch;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.core.util.AtomicFile;
+
+import com.monobogdan.monolaunch.core.LaunchScores;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local launch-frequency and recency model shared by the app grid and the task list.
+ *
+ * The scoring itself lives in {@link LaunchScores}; this class persists it. Every launch
+ * is appended to a small log file, and when the log grows too long it is compacted into
+ * one snapshot record per package. Nothing here needs Usage Access.
+ *
+ * The log is read on the writer thread. Queries wait for it, so call them off the main
+ * thread; launches recorded before it is read are replayed on top of it.
+ */
+class UsageModel {
+
+    private static final String TAG = "UsageModel";
+    private static final String FILE_NAME = "usage.log";
+
+    private static final byte RECORD_LAUNCH = 1;   // package, time
+    private static final byte RECORD_SNAPSHOT = 2; // package, score, scoreTime, lastLaunch
+
+    private static final int COMPACT_THRESHOLD = 512; // Records in the log
+    private static final double FORGET_SCORE = 0.01; // Dropped on compaction
+
+    private static UsageModel instance;
+
+    private final AtomicFile file;
+    private LaunchScores scores = new LaunchScores();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private int records;
+    private boolean loaded;
+    private final List<LaunchScores.Entry> early = new ArrayList<>(); // Launches recorded before the load
+
+    static synchronized UsageModel get(Context context) {
+        if (instance == null) instance = new UsageModel(context.getApplicationContext());
+        return instance;
+    }
+
+    private UsageModel(Context context) {
+        file = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    // --- Queries ---
+
+    /** Decayed launch count, 0 for packages never launched from the launcher. Worker threads only. */
+    synchronized double score(String packageName) {
+        awaitLoad();
+        return scores.score(packageName, System.currentTimeMillis());
+    }
+
+    /** Packages by last launch, most recent first. Worker threads only. */
+    synchronized List<String> recent(int limit) {
+        awaitLoad();
+        return scores.recent(limit);
+    }
+
+    private void awaitLoad() {
+        boolean interrupted = false;
+        while (!loaded) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    // --- Updates ---
+
+    synchronized void recordLaunch(String packageName) {
+        record(packageName, System.currentTimeMillis());
+    }
+
+    /** Imports a launch that happened elsewhere, e.g. from UsageStats on first run. */
+    synchronized void seed(String packageName, long time) {
+        record(packageName, time);
+    }
+
+    private void record(final String packageName, final long time) {
+        scores.launch(packageName, time);
+        if (!loaded) {
+            LaunchScores.Entry e = new LaunchScores.Entry();
+            e.packageName = packageName;
+            e.lastLaunch = time;
+            early.add(e);
+        }
+        // Appends queue up behind the load, a compaction has to wait for it
+        if (++records > COMPACT_THRESHOLD && loaded) {
+            compact();
+            return;
+        }
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                append(packageName, time);
+            }
+        });
+    }
+
+    // --- Persistence ---
+
+    // Runs on the writer thread
+    private void load() {
+        LaunchScores read = new LaunchScores();
+        int count = 0;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(file.readFully()));
+            while (in.available() > 0) {
+                byte type = in.readByte();
+                String pkg = in.readUTF();
+                if (type == RECORD_LAUNCH) {
+                    read.launch(pkg, in.readLong());
+                } else if (type == RECORD_SNAPSHOT) {
+                    LaunchScores.Entry e = new LaunchScores.Entry();
+                    e.packageName = pkg;
+                    e.score = in.readDouble();
+                    e.scoreTime = in.readLong();
+                    e.lastLaunch = in.readLong();
+                    read.restore(e);
+                } else {
+                    break; // Unknown record, keep what was read so far
+                }
+                count++;
+            }
+        } catch (EOFException e) {
+            // Torn last record after a crash, everything before it is fine
+        } catch (IOException e) {
+            Log.w(TAG, "Usage log not loaded: " + e.getMessage());
+        }
+
+        synchronized (this) {
+            for (LaunchScores.Entry e : early) read.launch(e.packageName, e.lastLaunch);
+            early.clear();
+            scores = read;
+            records += count;
+            loaded = true;
+            notifyAll();
+        }
+    }
+
+    // Runs on the writer thread
+    private void append(String packageName, long time) {
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(file.getBaseFile(), true)));
+            out.writeByte(RECORD_LAUNCH);
+            out.writeUTF(packageName);
+            out.writeLong(time);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to append launch: " + e.getMessage());
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void compact() {
+        final List<LaunchScores.Entry> snapshot = scores.compact(System.currentTimeMillis(), FORGET_SCORE);
+        records = snapshot.size();
+
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                FileOutputStream stream = null;
+                try {
+                    stream = file.startWrite();
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+                    for (LaunchScores.Entry e : snapshot) {
+                        out.writeByte(RECORD_SNAPSHOT);
+                        out.writeUTF(e.packageName);
+                        out.writeDouble(e.score);
+                        out.writeLong(e.scoreTime);
+                        out.writeLong(e.lastLaunch);
+                    }
+                    out.flush();
+                    file.finishWrite(stream);
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to compact usage log: " + e.getMessage());
+                    if (stream != null) file.failWrite(stream);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,305 @@
+package com.monobogdan.monolaunch;
+
+import android.annotation.TargetApi;
+import android.app.WallpaperManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import androidx.core.util.AtomicFile;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Turns the system wallpaper into a window background of exactly the screen size.
+ *
+ * The wallpaper file is decoded once with inSampleSize, center-cropped to the target size
+ * and kept as RGB_565 unless it has transparency. The result is stored on disk as raw
+ * pixels keyed by wallpaper id and size, so later starts only copy a few hundred KB instead
+ * of decoding a multi-megapixel image. A wallpaper change rebuilds it in the background.
+ * Before API 24 there is no wallpaper id, so the first cached copy a process serves is
+ * checked against a fresh build once, in case the wallpaper changed while we were dead.
+ */
+class WallpaperStage {
+
+    interface Listener {
+        /** Main thread. Null when there is no usable wallpaper. */
+        void onWallpaperReady(Bitmap wallpaper);
+    }
+
+    private static final String TAG = "WallpaperStage";
+    private static final String DIR_NAME = "wallpaper";
+    private static final int MAGIC = 0x4D4C5750; // "MLWP"
+    private static final int CONFIG_RGB_565 = 0;
+    private static final int CONFIG_ARGB_8888 = 1;
+
+    private final Context context;
+    private final WallpaperManager manager;
+    private final Listener listener;
+    private final File dir;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private int width;
+    private int height;
+    private int generation; // Main thread, drops results of superseded rebuilds
+    private boolean receiverRegistered;
+    private boolean verified; // Main thread, the cached copy was checked against the wallpaper
+
+    private final BroadcastReceiver changeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            rebuild(true);
+        }
+    };
+
+    WallpaperStage(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+        manager = WallpaperManager.getInstance(this.context);
+        dir = new File(this.context.getCacheDir(), DIR_NAME);
+        if (!dir.exists() && !dir.mkdirs()) Log.w(TAG, "Cannot create " + dir);
+    }
+
+    /**
+     * Delivers the wallpaper at the given size. A cached copy is delivered before returning,
+     * it is small enough to read on the main thread and avoids a black first frame.
+     */
+    void load(int width, int height) {
+        if (width <= 0 || height <= 0) return;
+        this.width = width;
+        this.height = height;
+
+        if (!receiverRegistered) {
+            context.registerReceiver(changeReceiver, new IntentFilter(Intent.ACTION_WALLPAPER_CHANGED));
+            receiverRegistered = true;
+        }
+
+        Bitmap cached = readCache(cacheFile(width, height));
+        if (cached != null) {
+            listener.onWallpaperReady(cached);
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N && !verified) {
+                verified = true;
+                rebuild(false, cached);
+            }
+            return;
+        }
+        rebuild(false);
+    }
+
+    /** Delivers the wallpaper again at the last size, e.g. after it was dropped to save memory. */
+    void reload() {
+        load(width, height);
+    }
+
+    void release() {
+        if (receiverRegistered) context.unregisterReceiver(changeReceiver);
+        receiverRegistered = false;
+        generation++;
+        worker.shutdown();
+    }
+
+    // --- Building ---
+
+    private void rebuild(boolean changed) {
+        rebuild(changed, null);
+    }
+
+    // A result equal to current, the copy already shown, is neither written nor delivered
+    private void rebuild(final boolean changed, final Bitmap current) {
+        if (width <= 0 || height <= 0) return;
+        final int gen = ++generation;
+        final int w = width;
+        final int h = height;
+
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                File file = cacheFile(w, h);
+                // Before API 24 there is no id, the change broadcast is all we have
+                if (changed) clearCache(null);
+
+                final Bitmap wallpaper = build(w, h);
+                if (wallpaper != null && current != null && wallpaper.sameAs(current)) {
+                    wallpaper.recycle();
+                    return;
+                }
+                if (wallpaper != null) {
+                    writeCache(file, wallpaper);
+                    clearCache(file);
+                }
+
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (gen == generation) listener.onWallpaperReady(wallpaper);
+                    }
+                });
+            }
+        });
+    }
+
+    private Bitmap build(int w, int h) {
+        try {
+            Bitmap source = null;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) source = decodeSampled(w, h);
+            if (source != null) {
+                Bitmap result = crop(source, w, h);
+                if (result != source) source.recycle();
+                return result;
+            }
+
+            // Built-in wallpaper or no file access, the drawable is full size but only drawn once
+            Drawable drawable = manager.getDrawable();
+            return drawable != null ? crop(drawable, w, h) : null;
+        } catch (SecurityException e) {
+            Log.e(TAG, "Failed to load wallpaper: " + e.getMessage());
+        } catch (OutOfMemoryError e) {
+            Log.e(TAG, "No memory for wallpaper: " + e.getMessage());
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading wallpaper: " + e.getMessage());
+        }
+        return null;
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    private Bitmap decodeSampled(int w, int h) throws IOException {
+        ParcelFileDescriptor fd = manager.getWallpaperFile(WallpaperManager.FLAG_SYSTEM);
+        if (fd == null) return null;
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFileDescriptor(fd.getFileDescriptor(), null, options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+
+            // Largest power of two that still covers the target, the crop scales the rest
+            int sample = 1;
+            while (options.outWidth / (sample * 2) >= w && options.outHeight / (sample * 2) >= h) sample *= 2;
+
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sample;
+            options.inPreferredConfig = Bitmap.Config.RGB_565; // Ignored for images with alpha
+            return BitmapFactory.decodeFileDescriptor(fd.getFileDescriptor(), null, options);
+        } finally {
+            fd.close();
+        }
+    }
+
+    private static Bitmap crop(Bitmap source, int w, int h) {
+        if (source.getWidth() == w && source.getHeight() == h
+                && (source.hasAlpha() || source.getConfig() == Bitmap.Config.RGB_565)) return source;
+
+        Bitmap result = Bitmap.createBitmap(w, h, source.hasAlpha() ? Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565);
+        float scale = Math.max((float) w / source.getWidth(), (float) h / source.getHeight());
+        Matrix matrix = new Matrix();
+        matrix.setScale(scale, scale);
+        matrix.postTranslate((w - source.getWidth() * scale) / 2, (h - source.getHeight() * scale) / 2);
+
+        new Canvas(result).drawBitmap(source, matrix, new Paint(Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG));
+        return result;
+    }
+
+    private static Bitmap crop(Drawable drawable, int w, int h) {
+        int dw = drawable.getIntrinsicWidth() > 0 ? drawable.getIntrinsicWidth() : w;
+        int dh = drawable.getIntrinsicHeight() > 0 ? drawable.getIntrinsicHeight() : h;
+        boolean opaque = drawable.getOpacity() == PixelFormat.OPAQUE;
+
+        Bitmap result = Bitmap.createBitmap(w, h, opaque ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888);
+        float scale = Math.max((float) w / dw, (float) h / dh);
+        int left = Math.round((w - dw * scale) / 2);
+        int top = Math.round((h - dh * scale) / 2);
+        drawable.setBounds(left, top, left + Math.round(dw * scale), top + Math.round(dh * scale));
+        drawable.setDither(true);
+        drawable.draw(new Canvas(result));
+        return result;
+    }
+
+    // --- Disk cache ---
+
+    private File cacheFile(int w, int h) {
+        int id = 0;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) id = manager.getWallpaperId(WallpaperManager.FLAG_SYSTEM);
+        return new File(dir, id + "_" + w + "x" + h + ".raw");
+    }
+
+    private static Bitmap readCache(File file) {
+        if (!file.exists()) return null;
+        try {
+            byte[] data = new AtomicFile(file).readFully();
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readInt() != MAGIC) return null;
+            int w = in.readInt();
+            int h = in.readInt();
+            int config = in.readInt();
+            int header = 16;
+
+            Bitmap b = Bitmap.createBitmap(w, h,
+                    config == CONFIG_RGB_565 ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888);
+            if (data.length - header < b.getByteCount()) {
+                b.recycle();
+                return null; // Truncated
+            }
+            b.copyPixelsFromBuffer(ByteBuffer.wrap(data, header, b.getByteCount()));
+            return b;
+        } catch (IOException e) {
+            Log.w(TAG, "Wallpaper cache not loaded: " + e.getMessage());
+        } catch (OutOfMemoryError e) {
+            Log.e(TAG, "No memory for cached wallpaper: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static void writeCache(File target, Bitmap b) {
+        AtomicFile file = new AtomicFile(target);
+        FileOutputStream stream = null;
+        try {
+            ByteBuffer pixels = ByteBuffer.allocate(b.getByteCount());
+            b.copyPixelsToBuffer(pixels);
+
+            stream = file.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(MAGIC);
+            out.writeInt(b.getWidth());
+            out.writeInt(b.getHeight());
+            out.writeInt(b.getConfig() == Bitmap.Config.RGB_565 ? CONFIG_RGB_565 : CONFIG_ARGB_8888);
+            out.write(pixels.array());
+            out.flush();
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to cache wallpaper: " + e.getMessage());
+            if (stream != null) file.failWrite(stream);
+        }
+    }
+
+    // Deletes every cached wallpaper except keep, which may be null
+    private void clearCache(File keep) {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        for (File f : files) {
+            if (f.equals(keep)) continue;
+            if (!f.delete()) Log.w(TAG, "Cannot delete " + f);
+        }
+    }
+}
@@ -1,24 +1,88 @@
 package com.monobogdan.monolaunch.widgets;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Typeface;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.util.TypedValue;  // ADD THIS
-import android.view.View;
 
 import java.text.DateFormat;
+import java.text.FieldPosition;
+import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.TimeZone;
 
-public class ClockWidget {
+public class ClockWidget implements HomeWidget {
 
-    private View parentView;
+    private static final String PREF_NAME = "launcher_prefs";
+    private static final String KEY_SECONDS = "clock_seconds";
+
+    // Formatted text kept in reusable buffers, re-measured only when it changes
+    private static class TextLine {
+        final StringBuffer buffer = new StringBuffer(32);
+        char[] chars = new char[32];
+        int length;
+        float width;
+
+        boolean update(Paint paint) {
+            boolean changed = buffer.length() != length;
+            for (int i = 0; !changed && i < length; i++) changed = buffer.charAt(i) != chars[i];
+            if (!changed) return false;
+
+            length = buffer.length();
+            if (chars.length < length) chars = new char[length * 2];
+            buffer.getChars(0, length, chars, 0);
+            width = paint.measureText(chars, 0, length);
+            return true;
+        }
+    }
+
+    private WidgetHost host;
     private Context context;  // ADD THIS
     private Paint bgPaint;
     private Paint paint;
     private Paint datePaint;
+    private int width;
+    private int height;
+
+    private DateFormat timeFormat;
+    private DateFormat dateFormat;
+    private boolean showSeconds;
+    private final Date date = new Date();
+    private final FieldPosition fieldPosition = new FieldPosition(0);
+    private final TextLine timeLine = new TextLine();
+    private final TextLine dateLine = new TextLine();
+    private float timeAscent;
+    private float dateAscent;
+
+    private final Handler handler; // Shared with the other widgets, see WidgetHost
+    private final IntentFilter timeFilter = new IntentFilter();
+    private final Runnable secondTick = new Runnable() {
+        @Override
+        public void run() {
+            update();
+            scheduleSecondTick();
+        }
+    };
+
+    // TIME_TICK arrives on every minute boundary, the other two when the clock jumps
+    private final BroadcastReceiver timeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+                timeFormat.setTimeZone(TimeZone.getDefault());
+                dateFormat.setTimeZone(TimeZone.getDefault());
+            }
+            update();
+            if (showSeconds) scheduleSecondTick(); // Realign after a time change
+        }
+    };
 
     // Move helper methods INSIDE the class and use context
     private float dpToPx(float dp) {
@@ -37,10 +101,11 @@ public class ClockWidget {
         );
     }
 
-    public ClockWidget(View view)
+    public ClockWidget(Context context, WidgetHost host)
     {
-        parentView = view;
-        context = view.getContext();  // Store context reference
+        this.host = host;
+        this.context = context;
+        handler = host.getScheduler();
 
         bgPaint = new Paint();
         bgPaint.setColor(Color.argb(99, 128, 128, 128));
@@ -57,30 +122,86 @@ public class ClockWidget {
         datePaint.setAntiAlias(true);
         datePaint.setTypeface(Typeface.MONOSPACE);
 
-        Handler handler = new Handler();
-        handler.post(new Runnable() {
-            @Override
-            public void run() {
-                view.invalidate();
-                handler.postDelayed(this, 1000);
-            }
-        });
+        // getFontMetrics() allocates, the paints never change so ask once
+        timeAscent = -paint.getFontMetrics().top;
+        dateAscent = -datePaint.getFontMetrics().top;
+
+        boolean seconds = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE)
+                .getBoolean(KEY_SECONDS, true);
+        timeFormat = DateFormat.getTimeInstance(seconds ? DateFormat.MEDIUM : DateFormat.SHORT);
+        dateFormat = DateFormat.getDateInstance();
+        showSeconds = timeFormat instanceof SimpleDateFormat
+                && ((SimpleDateFormat) timeFormat).toPattern().indexOf('s') >= 0;
+
+        timeFilter.addAction(Intent.ACTION_TIME_TICK);
+        timeFilter.addAction(Intent.ACTION_TIME_CHANGED);
+        timeFilter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+
+        update();
+    }
+
+    @Override
+    public void onResume()
+    {
+        context.registerReceiver(timeReceiver, timeFilter);
+        // The zone may have changed while the receiver was off
+        timeFormat.setTimeZone(TimeZone.getDefault());
+        dateFormat.setTimeZone(TimeZone.getDefault());
+        update();
+        if (showSeconds) scheduleSecondTick();
     }
 
-    public float draw(Canvas canvas, float y)
+    @Override
+    public void onPause()
     {
-        float yRet = 0;
-        Date date = new Date();
-        String strDate = DateFormat.getDateInstance().format(date);
-        String strTime = DateFormat.getTimeInstance().format(date);
+        context.unregisterReceiver(timeReceiver);
+        handler.removeCallbacks(secondTick);
+    }
+
+    @Override
+    public void onDestroy()
+    {
+    }
+
+    // Wakes exactly on the next second boundary instead of drifting 1000 ms steps
+    private void scheduleSecondTick()
+    {
+        handler.removeCallbacks(secondTick);
+        long delay = 1000 - System.currentTimeMillis() % 1000;
+        handler.postAtTime(secondTick, SystemClock.uptimeMillis() + delay);
+    }
+
+    private void update()
+    {
+        date.setTime(System.currentTimeMillis());
+
+        timeLine.buffer.setLength(0);
+        timeFormat.format(date, timeLine.buffer, fieldPosition);
+        dateLine.buffer.setLength(0);
+        dateFormat.format(date, dateLine.buffer, fieldPosition);
+
+        boolean changed = timeLine.update(paint);
+        changed |= dateLine.update(datePaint);
+        if (changed) host.update(this); // Only the clock area is repainted
+    }
 
-        canvas.drawText(strTime, parentView.getWidth() / 2 - (paint.measureText(strTime) / 2), y + -paint.getFontMetrics().top, paint);
-        yRet += -paint.getFontMetrics().top;
-        canvas.drawText(strDate, parentView.getWidth() / 2 - (datePaint.measureText(strDate) / 2), y+ -datePaint.getFontMetrics().top + -paint.getFontMetrics().top, datePaint);
-        yRet += -datePaint.getFontMetrics().top;
+    @Override
+    public int measure(int width)
+    {
+        this.width = width;
+        height = (int) Math.ceil(timeAscent + dateAscent + dpToPx(25));
+        return height;
+    }
+
+    // Allocation free, the text is formatted and measured by update()
+    @Override
+    public void draw(Canvas canvas)
+    {
+        float center = width / 2;
 
-        canvas.drawRect(0, y, parentView.getWidth(), yRet + dpToPx(25), bgPaint);  // Convert 25 to dp
+        canvas.drawRect(0, 0, width, height, bgPaint);
 
-        return yRet + dpToPx(25);  // Convert 25 to dp
+        canvas.drawText(timeLine.chars, 0, timeLine.length, center - timeLine.width / 2, timeAscent, paint);
+        canvas.drawText(dateLine.chars, 0, dateLine.length, center - dateLine.width / 2, timeAscent + dateAscent, datePaint);
     }
 }
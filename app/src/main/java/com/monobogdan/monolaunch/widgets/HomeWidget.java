@@ -0,0 +1,36 @@
+package com.monobogdan.monolaunch.widgets;
+
+import android.graphics.Canvas;
+
+/**
+ * A home screen widget driven by {@link WidgetHost}.
+ *
+ * Widgets must not start timers, observers or receivers on their own: they do it in
+ * {@link #onResume()} and stop everything in {@link #onPause()}, so the launcher causes no
+ * wakeups while it is not visible.
+ *
+ * The host places widgets one under another in the order configured in the preferences.
+ * A widget never invalidates a view itself: when its content changed it calls
+ * {@link WidgetHost#update(HomeWidget)} and is drawn again on the next frame, without the
+ * other widgets.
+ */
+public interface HomeWidget {
+
+    /** Height in pixels the widget needs at the given width. Called on layout only. */
+    int measure(int width);
+
+    /**
+     * Draws the widget at (0, 0) within the size it was measured at. Runs on every frame the
+     * widget is dirty, so no allocation and no I/O here; the host times every call.
+     */
+    void draw(Canvas canvas);
+
+    /** The home screen became visible with the display on. */
+    void onResume();
+
+    /** The home screen is hidden, the activity paused or the display went off. */
+    void onPause();
+
+    /** Called once when the activity is destroyed, after {@link #onPause()}. */
+    void onDestroy();
+}
@@ -8,68 +8,82 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.media.AudioManager;
-import android.os.Handler;
-import android.util.Log;
-import android.view.View;
 
-public class PlayerWidget {
+public class PlayerWidget implements HomeWidget {
 
-    private View launcherView;
+    private WidgetHost host;
     private AudioManager manager;
+    private Context context;
 
     class AudioPlayerReceiver extends BroadcastReceiver
     {
         public boolean isPlaying;
         public String songName;
         public String artist;
-
-        public AudioPlayerReceiver(Context ctx)
-        {
-            IntentFilter filter = new IntentFilter();
-
-            filter.addAction("com.android.music.playstatechanged");
-            ctx.registerReceiver(this, filter);
-        }
+        public String text; // What draw() shows, null when nothing plays
 
         @Override
         public void onReceive(Context context, Intent intent) {
             isPlaying = intent.getBooleanExtra("playing", false);
             songName = intent.getStringExtra("track");
             artist = intent.getStringExtra("artist");
+            // Built here so draw() does not concatenate every frame
+            text = artist != null && songName != null && isPlaying ? artist + " - " + songName : null;
 
-            Log.i("", "onReceive: Hi");
-
-            Handler handler = new Handler();
-            handler.post(new Runnable() {
-                @Override
-                public void run() {
-                    launcherView.invalidate();
-                }
-            });
+            // Delivered on the main thread already
+            host.update(PlayerWidget.this);
         }
     }
 
     private Paint paint;
+    private float textAscent;
+    private int textHeight;
     private AudioPlayerReceiver receiver;
 
-    public PlayerWidget(View launcherView)
+    public PlayerWidget(Context context, WidgetHost host)
     {
-        this.launcherView = launcherView;
+        this.host = host;
+        this.context = context;
 
-        Context context = launcherView.getContext();
-
-        receiver = new AudioPlayerReceiver(context);
+        receiver = new AudioPlayerReceiver();
         manager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
 
         paint = new Paint();
         paint.setColor(Color.WHITE);
         paint.setAntiAlias(true);
+
+        // getFontMetrics() allocates, the paint never changes so ask once
+        Paint.FontMetrics fm = paint.getFontMetrics();
+        textAscent = -fm.top;
+        textHeight = (int) Math.ceil(-fm.top + fm.bottom);
     }
 
-    public float draw(Canvas canvas, float y) {
-        if(receiver.artist != null && receiver.songName != null && receiver.isPlaying)
-            canvas.drawText(receiver.artist + " - " + receiver.songName, 0, y + -paint.getFontMetrics().top, paint);
+    @Override
+    public void onResume() {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction("com.android.music.playstatechanged");
+        // Players send this sticky, so the state we missed while paused is delivered right away
+        Intent last = context.registerReceiver(receiver, filter);
+        if (last != null) receiver.onReceive(context, last);
+    }
+
+    @Override
+    public void onPause() {
+        context.unregisterReceiver(receiver);
+    }
+
+    @Override
+    public void onDestroy() {
+    }
+
+    @Override
+    public int measure(int width) {
+        return textHeight;
+    }
 
-        return -paint.getFontMetrics().top;
+    @Override
+    public void draw(Canvas canvas) {
+        if (receiver.text != null)
+            canvas.drawText(receiver.text, 0, textAscent, paint);
     }
 }
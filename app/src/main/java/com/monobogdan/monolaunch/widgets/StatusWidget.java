@@ -1,10 +1,8 @@
 package com.monobogdan.monolaunch.widgets;
 
 import android.app.ActivityManager;
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
@@ -15,24 +13,30 @@ import android.graphics.drawable.BitmapDrawable;
 import android.net.Uri;
 import android.os.BatteryManager;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.PowerManager;
+import android.provider.BaseColumns;
 import android.provider.CallLog;
 import android.provider.Telephony;
-import android.telephony.TelephonyManager;
+import android.util.Log;
 import android.util.TypedValue;  // ADD THIS
 import android.view.View;
 
-import com.monobogdan.monolaunch.Launcher;
+import com.monobogdan.monolaunch.JankWatchdog;
 import com.monobogdan.monolaunch.R;
 
-import java.util.Date;
 import java.util.Dictionary;
 import java.util.Hashtable;
 
-public class StatusWidget extends BroadcastReceiver {
+public class StatusWidget implements HomeWidget {
+
+    private static final String TAG = "StatusWidget";
+    private static final Uri SMS_URI = Uri.parse("content://sms");
+    private static final long QUERY_DEBOUNCE = 500;
+    private static final long MEMORY_POLL_INTERVAL = 5000;
 
     private Context context;
-    private Launcher.LauncherView view;
+    private WidgetHost host;
 
     private ActivityManager activityManager;
     private ActivityManager.MemoryInfo memInfo;
@@ -45,6 +49,18 @@ public class StatusWidget extends BroadcastReceiver {
     private int smsCount;
     private String smsSender;
     private int dialCount;
+    private String smsLabel;
+    private String dialLabel;
+    private String ramLabel;
+    private final Matrix matrix = new Matrix();
+    private float textAscent;
+
+    // Provider queries never run on the UI thread
+    private Handler mainHandler;
+    private HandlerThread queryThread;
+    private Handler queryHandler;
+    private ContentObserver providerObserver; // Registered for both SMS and call log
+    private boolean active;
 
     private float dpToPx(float dp) {
         return TypedValue.applyDimension(
@@ -62,10 +78,10 @@ public class StatusWidget extends BroadcastReceiver {
         );
     }
 
-    public StatusWidget(Launcher.LauncherView view)
+    public StatusWidget(Context context, WidgetHost host)
     {
-        this.view = view;
-        context = view.getContext();
+        this.host = host;
+        this.context = context;
 
         smsSender = "";
 
@@ -74,6 +90,7 @@ public class StatusWidget extends BroadcastReceiver {
         paint.setColor(Color.WHITE);
         paint.setAntiAlias(true);
         paint.setShadowLayer(dpToPx(1), dpToPx(1), dpToPx(1), Color.DKGRAY);  // Fixed
+        textAscent = -paint.getFontMetrics().top;
 
         activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
         memInfo = new ActivityManager.MemoryInfo();
@@ -82,94 +99,189 @@ public class StatusWidget extends BroadcastReceiver {
         iconDial = (BitmapDrawable) context.getResources().getDrawable(R.drawable.dial);
         iconRAM = (BitmapDrawable) context.getResources().getDrawable(R.drawable.cpu);
 
-        IntentFilter broadCast = new IntentFilter();
-        broadCast.addAction(Telephony.Sms.Intents.SMS_RECEIVED_ACTION);
-        broadCast.addAction(TelephonyManager.ACTION_PHONE_STATE_CHANGED);
-
-        context.registerReceiver(this, broadCast);
+        mainHandler = host.getScheduler();
+        queryThread = new HandlerThread("StatusWidget");
+        queryThread.start();
+        queryHandler = new Handler(queryThread.getLooper());
 
-        Handler handler = new Handler();
-        handler.post(new Runnable() {
+        // A burst of provider notifications (e.g. marking a thread read) ends in one query
+        providerObserver = new ContentObserver(mainHandler) {
             @Override
-            public void run() {
-                activityManager.getMemoryInfo(memInfo);
-                updateSMSState();
-                updateDialState();
-                handler.postDelayed(this, 5000);
+            public void onChange(boolean selfChange) {
+                scheduleQuery();
             }
-        });
+        };
+
+        updateLabels();
+    }
+
+    @Override
+    public void onResume()
+    {
+        setActive(true);
+    }
+
+    @Override
+    public void onPause()
+    {
+        setActive(false);
     }
 
-    private void updateSMSState() {
-    smsCount = 0;
-    smsSender = "";
-
-    Cursor cursor = null;
-    try {
-        cursor = context.getContentResolver().query(
-                Uri.parse("content://sms/inbox"),
-                new String[]{Telephony.Sms.ADDRESS, Telephony.Sms.DATE, Telephony.Sms.READ},
-                "read = 0", null, null);
-
-        if (cursor != null) {
-            smsCount = cursor.getCount();
-            if (smsCount > 0 && cursor.moveToFirst()) {
-                int addr = cursor.getColumnIndex("address");
-                if (addr != -1)
-                    smsSender = cursor.getString(addr);
+    @Override
+    public void onDestroy()
+    {
+        setActive(false);
+        queryThread.quit();
+    }
+
+    // Observers and the RAM poll only run while the home screen is visible
+    private void setActive(boolean active)
+    {
+        if (this.active == active) return;
+        this.active = active;
+
+        if (active) {
+            try {
+                context.getContentResolver().registerContentObserver(SMS_URI, true, providerObserver);
+                context.getContentResolver().registerContentObserver(CallLog.Calls.CONTENT_URI, true, providerObserver);
+            } catch (SecurityException e) {
+                Log.w(TAG, "Cannot observe SMS/call log: " + e.getMessage());
             }
+            // Anything may have changed while we were paused
+            queryHandler.removeCallbacks(queryCounts);
+            queryHandler.post(queryCounts);
+            mainHandler.post(memoryPoll);
+        } else {
+            context.getContentResolver().unregisterContentObserver(providerObserver);
+            queryHandler.removeCallbacks(queryCounts);
+            mainHandler.removeCallbacks(memoryPoll);
         }
-    } catch (Exception e) {
-        e.printStackTrace(); // Optional: Log safely to file or console
-    } finally {
-        if (cursor != null) cursor.close();
     }
-}
-
 
-    private void updateDialState()
+    private void scheduleQuery()
     {
-        String[] proj = new String[]
-                {
-                        CallLog.Calls.IS_READ,
-                        CallLog.Calls.NUMBER,
-                        CallLog.Calls.DATE
-                };
-
-        Cursor cursor = context.getContentResolver().query(CallLog.Calls.CONTENT_URI, proj, "is_read = 0", null, null);
-        dialCount = cursor.getCount();
+        queryHandler.removeCallbacks(queryCounts);
+        queryHandler.postDelayed(queryCounts, QUERY_DEBOUNCE);
     }
 
-    @Override
-    public void onReceive(Context context, Intent intent) {
-        updateSMSState();
-        updateDialState();
+    // Runs on queryThread
+    private final Runnable queryCounts = new Runnable() {
+        @Override
+        public void run() {
+            long start = JankWatchdog.begin(JankWatchdog.OP_STATUS_QUERY);
+            final String[] sender = new String[1];
+            final int sms = querySMSState(sender);
+            final int dial = queryDialState();
+            JankWatchdog.end(JankWatchdog.OP_STATUS_QUERY, start);
+
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    smsCount = sms;
+                    smsSender = sender[0] != null ? sender[0] : "";
+                    dialCount = dial;
+                    updateLabels();
+                }
+            });
+        }
+    };
+
+    private final Runnable memoryPoll = new Runnable() {
+        @Override
+        public void run() {
+            activityManager.getMemoryInfo(memInfo);
+            updateLabels();
+            mainHandler.postDelayed(this, MEMORY_POLL_INTERVAL);
+        }
+    };
+
+    // Unread count plus the newest sender, only _id and address are read
+    private int querySMSState(String[] sender) {
+        int count = 0;
+        Cursor cursor = null;
+        try {
+            cursor = context.getContentResolver().query(
+                    Uri.parse("content://sms/inbox"),
+                    new String[]{BaseColumns._ID, Telephony.Sms.ADDRESS},
+                    "read = 0", null, null);
+
+            if (cursor != null) {
+                count = cursor.getCount();
+                if (count > 0 && cursor.moveToFirst()) {
+                    int addr = cursor.getColumnIndex("address");
+                    if (addr != -1)
+                        sender[0] = cursor.getString(addr);
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "SMS query failed: " + e.getMessage());
+        } finally {
+            if (cursor != null) cursor.close();
+        }
+        return count;
+    }
+
+    private int queryDialState()
+    {
+        int count = 0;
+        Cursor cursor = null;
+        try {
+            cursor = context.getContentResolver().query(CallLog.Calls.CONTENT_URI,
+                    new String[]{BaseColumns._ID}, "is_read = 0", null, null);
+            if (cursor != null) count = cursor.getCount();
+        } catch (Exception e) {
+            Log.w(TAG, "Call log query failed: " + e.getMessage());
+        } finally {
+            if (cursor != null) cursor.close();
+        }
+        return count;
+    }
 
-        view.invalidate();
+    // Strings are rebuilt when a value changes, not on every frame
+    private void updateLabels()
+    {
+        long start = JankWatchdog.begin(JankWatchdog.OP_STATUS_LABELS);
+        String senderStr = smsSender.length() > 0 ? "(" + smsSender + ")" : "";
+        String sms = String.valueOf(smsCount) + " " + context.getString(R.string.unread) + senderStr;
+        String dial = String.valueOf(dialCount) + " " +  context.getString(R.string.missed);
+        String ram = memInfo.availMem / 1024 / 1024 + " " +  context.getString(R.string.ram);
+
+        if (!sms.equals(smsLabel) || !dial.equals(dialLabel) || !ram.equals(ramLabel)) {
+            smsLabel = sms;
+            dialLabel = dial;
+            ramLabel = ram;
+            host.update(this);
+        }
+        JankWatchdog.end(JankWatchdog.OP_STATUS_LABELS, start);
     }
 
     private float drawStatusIcon(Bitmap bmp, float x, float y, float animFactor, String annotation, Canvas cnvs)
     {
-        Matrix matrix = new Matrix();
+        matrix.reset();
         matrix.preTranslate(x, y);
         matrix.preScale(animFactor, animFactor);
-        int fac = (int)(3.14f / animFactor);
 
         cnvs.drawBitmap(bmp, matrix, paint);
-        cnvs.drawText(annotation, x + bmp.getWidth() + dpToPx(5), y + -paint.getFontMetrics().top, paint);
+        cnvs.drawText(annotation, x + bmp.getWidth() + dpToPx(5), y + textAscent, paint);
 
         return bmp.getHeight() + dpToPx(5);
     }
 
-    public float draw(Canvas cnvs, float y)
+    // Three rows, as in drawStatusIcon
+    @Override
+    public int measure(int width)
     {
-        float animFactor = (float)Math.abs (Math.sin((new Date().getTime() - view.getTimeSinceStart()) * 0.005f));
-        String senderStr = smsSender.length() > 0 ? "(" + smsSender + ")" : "";
+        return (int) Math.ceil(iconSMS.getBitmap().getHeight() + iconDial.getBitmap().getHeight()
+                + iconRAM.getBitmap().getHeight() + 3 * dpToPx(5));
+    }
 
-        y += drawStatusIcon(iconSMS.getBitmap(), dpToPx(5), y, 1.0f, String.valueOf(smsCount) + " " + context.getString(R.string.unread) + senderStr, cnvs);
-        y += drawStatusIcon(iconDial.getBitmap(), dpToPx(5), y, 1.0f, String.valueOf(dialCount) + " " +  context.getString(R.string.missed), cnvs);
-        y += drawStatusIcon(iconRAM.getBitmap(), dpToPx(5), y, 1.0f, memInfo.availMem / 1024 / 1024 + " " +  context.getString(R.string.ram), cnvs);
+    @Override
+    public void draw(Canvas cnvs)
+    {
+        float y = 0;
 
-        return y;
+        y += drawStatusIcon(iconSMS.getBitmap(), dpToPx(5), y, 1.0f, smsLabel, cnvs);
+        y += drawStatusIcon(iconDial.getBitmap(), dpToPx(5), y, 1.0f, dialLabel, cnvs);
+        drawStatusIcon(iconRAM.getBitmap(), dpToPx(5), y, 1.0f, ramLabel, cnvs);
     }
 }
@@ -0,0 +1,316 @@
+package com.monobogdan.monolaunch.widgets;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.monobogdan.monolaunch.PerfCounters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Owns the home screen widgets' lifecycle, layout and drawing.
+ *
+ * Widgets are resumed only while the activity is resumed, the home screen is the visible
+ * screen and the display is on; any of these going away pauses all of them. They share one
+ * main-thread {@link Handler} for their timers so everything can be dropped in one place.
+ *
+ * Which widgets are shown and in what order comes from the {@code home_widgets} preference,
+ * a comma separated list of widget ids. Each widget draws into its own child view of the
+ * home screen, so under hardware acceleration an update records only that widget's display
+ * list again; in software the parent only redraws children inside the dirty area.
+ *
+ * Every draw is timed: a widget that overruns its budget a few frames in a row is flagged
+ * and from then on rendered into a cached bitmap, which is only redrawn when the widget
+ * reports a change.
+ */
+public class WidgetHost {
+
+    private static final String TAG = "WidgetHost";
+    private static final String PREF_NAME = "launcher_prefs";
+    private static final String KEY_WIDGETS = "home_widgets";
+    private static final String DEFAULT_WIDGETS = "clock,status,player";
+
+    // A slice of a 60 fps frame on a 1.2 GHz device, the bottom bar and list need the rest
+    private static final long DRAW_BUDGET_NANOS = 2000000;
+    private static final int OVERRUN_LIMIT = 3; // Consecutive frames before caching
+
+    private static class Slot {
+        final String id;
+        final HomeWidget widget;
+        final Rect bounds = new Rect();
+
+        long lastDrawNanos;
+        int overruns;
+        boolean cached; // Flagged as slow, drawn from cache
+        Bitmap cache;
+        boolean cacheValid;
+        View view;
+
+        Slot(String id, HomeWidget widget) {
+            this.id = id;
+            this.widget = widget;
+        }
+    }
+
+    private final Context context;
+    private final Handler scheduler = new Handler(Looper.getMainLooper());
+    private final List<Slot> slots = new ArrayList<>();
+    private final Canvas cacheCanvas = new Canvas();
+    private ViewGroup parent;
+
+    private boolean activityResumed;
+    private boolean homeVisible;
+    private boolean screenOn = true;
+    private boolean widgetsResumed;
+    private boolean destroyed;
+
+    private final BroadcastReceiver screenReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            screenOn = Intent.ACTION_SCREEN_ON.equals(intent.getAction());
+            dispatch();
+        }
+    };
+
+    public WidgetHost(Context context) {
+        this.context = context.getApplicationContext();
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        this.context.registerReceiver(screenReceiver, filter);
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public Handler getScheduler() {
+        return scheduler;
+    }
+
+    // --- Widgets ---
+
+    /** Creates the widgets listed in the preferences and adds a child view for each to the parent. */
+    public void inflate(ViewGroup parent) {
+        this.parent = parent;
+
+        String ids = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE)
+                .getString(KEY_WIDGETS, DEFAULT_WIDGETS);
+        for (String id : ids.split(",")) {
+            id = id.trim();
+            HomeWidget widget = create(id);
+            if (widget != null) add(id, widget);
+        }
+    }
+
+    // New widgets register their id here
+    private HomeWidget create(String id) {
+        switch (id) {
+            case "clock":
+                return new ClockWidget(context, this);
+            case "status":
+                return new StatusWidget(context, this);
+            case "player":
+                return new PlayerWidget(context, this);
+            default:
+                Log.w(TAG, "Unknown widget in layout: " + id);
+                return null;
+        }
+    }
+
+    private void add(String id, HomeWidget widget) {
+        Slot slot = new Slot(id, widget);
+        slot.view = new SlotView(parent.getContext(), slot);
+        parent.addView(slot.view);
+        slots.add(slot);
+        if (widgetsResumed) widget.onResume();
+    }
+
+    /** Called by a widget whose content changed, repaints only its view on the next frame. */
+    public void update(HomeWidget widget) {
+        Slot slot = find(widget);
+        if (slot == null) return; // Still being constructed
+        slot.cacheValid = false;
+        if (!slot.bounds.isEmpty()) {
+            PerfCounters.count(PerfCounters.INVALIDATE);
+            slot.view.invalidate();
+        }
+    }
+
+    private Slot find(HomeWidget widget) {
+        for (int i = 0; i < slots.size(); i++) {
+            if (slots.get(i).widget == widget) return slots.get(i);
+        }
+        return null;
+    }
+
+    // --- Layout and drawing ---
+
+    /**
+     * Stacks the widget views from top down and returns the bottom of the last one. Called
+     * from the parent's onLayout.
+     */
+    public int layout(int top, int width) {
+        int y = top;
+        for (Slot slot : slots) {
+            int height = Math.max(0, slot.widget.measure(width));
+            if (slot.bounds.width() != width || slot.bounds.height() != height) slot.cacheValid = false;
+            slot.bounds.set(0, y, width, y + height);
+            slot.view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+            slot.view.layout(0, y, width, y + height);
+            y += height;
+        }
+        return y;
+    }
+
+    // One per widget, its canvas starts at the widget's origin and is clipped to its bounds
+    private class SlotView extends View {
+        private final Slot slot;
+
+        SlotView(Context context, Slot slot) {
+            super(context);
+            this.slot = slot;
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            drawSlot(slot, canvas);
+        }
+    }
+
+    private void drawSlot(Slot slot, Canvas canvas) {
+        if (slot.bounds.isEmpty()) return;
+        if (slot.cached) {
+            if (!slot.cacheValid && !renderCache(slot)) {
+                slot.cached = false; // No memory for the cache, draw directly
+                slot.overruns = 0;
+                drawTimed(slot, canvas);
+                return;
+            }
+            canvas.drawBitmap(slot.cache, 0, 0, null);
+        } else {
+            drawTimed(slot, canvas);
+        }
+    }
+
+    private void drawTimed(Slot slot, Canvas canvas) {
+        long start = System.nanoTime();
+        slot.widget.draw(canvas);
+        slot.lastDrawNanos = System.nanoTime() - start;
+
+        if (slot.lastDrawNanos <= DRAW_BUDGET_NANOS) {
+            slot.overruns = 0;
+        } else if (++slot.overruns >= OVERRUN_LIMIT && !slot.cached) {
+            Log.w(TAG, "Widget " + slot.id + " takes " + slot.lastDrawNanos / 1000
+                    + " us to draw, caching its rendering");
+            slot.cached = true;
+            slot.cacheValid = false;
+        }
+    }
+
+    private boolean renderCache(Slot slot) {
+        int w = slot.bounds.width();
+        int h = slot.bounds.height();
+        if (slot.cache == null || slot.cache.getWidth() != w || slot.cache.getHeight() != h) {
+            releaseCache(slot);
+            try {
+                slot.cache = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+                PerfCounters.count(PerfCounters.BITMAP);
+            } catch (OutOfMemoryError e) {
+                Log.e(TAG, "No memory to cache widget " + slot.id + ": " + e.getMessage());
+                return false;
+            }
+        }
+        slot.cache.eraseColor(Color.TRANSPARENT);
+        cacheCanvas.setBitmap(slot.cache);
+
+        long start = System.nanoTime();
+        slot.widget.draw(cacheCanvas);
+        slot.lastDrawNanos = System.nanoTime() - start;
+        cacheCanvas.setBitmap(null);
+        slot.cacheValid = true;
+        return true;
+    }
+
+    private static void releaseCache(Slot slot) {
+        if (slot.cache != null) slot.cache.recycle();
+        slot.cache = null;
+        slot.cacheValid = false;
+    }
+
+    // --- Memory ---
+
+    /** Frees the render caches of slow widgets, they are rendered again when next drawn. */
+    public void releaseCaches() {
+        for (Slot slot : slots) {
+            releaseCache(slot);
+            slot.view.invalidate(); // The old display list still points at it
+        }
+    }
+
+    public long getCacheBytes() {
+        long bytes = 0;
+        for (Slot slot : slots) {
+            if (slot.cache != null) bytes += slot.cache.getByteCount();
+        }
+        return bytes;
+    }
+
+    // --- Lifecycle ---
+
+    public void onResume() {
+        activityResumed = true;
+        dispatch();
+    }
+
+    public void onPause() {
+        activityResumed = false;
+        dispatch();
+    }
+
+    public void setHomeVisible(boolean visible) {
+        homeVisible = visible;
+        dispatch();
+    }
+
+    public void onDestroy() {
+        activityResumed = false;
+        dispatch();
+        destroyed = true;
+
+        context.unregisterReceiver(screenReceiver);
+        for (Slot slot : slots) {
+            slot.widget.onDestroy();
+            releaseCache(slot);
+            parent.removeView(slot.view);
+        }
+        slots.clear();
+        parent = null;
+        scheduler.removeCallbacksAndMessages(null);
+    }
+
+    private void dispatch() {
+        boolean resume = !destroyed && activityResumed && homeVisible && screenOn;
+        if (resume == widgetsResumed) return;
+        widgetsResumed = resume;
+
+        for (Slot slot : slots) {
+            if (resume) slot.widget.onResume();
+            else slot.widget.onPause();
+        }
+    }
+}
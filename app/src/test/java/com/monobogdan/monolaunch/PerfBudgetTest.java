@@ -0,0 +1,229 @@
+package com.monobogdan.monolaunch;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.ResolveInfo;
+import android.os.Looper;
+import android.view.KeyEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowPackageManager;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Drives the launcher screens with key events over a fake package list and checks the
+ * work each action caused against its budget in {@link PerfCounters}.
+ *
+ * Time is not checked: the test clock only moves when the looper is idled.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class PerfBudgetTest {
+
+    private static final int APPS = 60;
+    private static final int RECENT = 12;
+
+    private ActivityController<Launcher> controller;
+    private Launcher launcher;
+
+    @Before
+    public void setUp() {
+        PerfCounters.enabled = true;
+        installFakeApps();
+        controller = Robolectric.buildActivity(Launcher.class).setup();
+        launcher = controller.get();
+        settle(); // Deferred screens, catalog and icons
+    }
+
+    @After
+    public void tearDown() {
+        controller.pause().stop().destroy();
+        PerfCounters.enabled = BuildConfig.DEBUG;
+    }
+
+    // --- Fakes ---
+
+    private static void installFakeApps() {
+        ShadowPackageManager pm = shadowOf(RuntimeEnvironment.getApplication().getPackageManager());
+        Intent main = new Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_LAUNCHER);
+        UsageModel usage = UsageModel.get(RuntimeEnvironment.getApplication());
+        for (int i = 0; i < APPS; i++) {
+            String pkg = "com.example.app" + i;
+            ComponentName component = new ComponentName(pkg, pkg + ".Main");
+
+            PackageInfo info = new PackageInfo();
+            info.packageName = pkg;
+            info.lastUpdateTime = 1000 + i;
+            info.applicationInfo = new ApplicationInfo();
+            info.applicationInfo.packageName = pkg;
+            info.applicationInfo.nonLocalizedLabel = labelOf(i);
+            pm.installPackage(info);
+            pm.addActivityIfNotPresent(component);
+
+            ResolveInfo resolve = new ResolveInfo();
+            resolve.nonLocalizedLabel = labelOf(i);
+            resolve.activityInfo = new ActivityInfo();
+            resolve.activityInfo.packageName = pkg;
+            resolve.activityInfo.name = component.getClassName();
+            resolve.activityInfo.applicationInfo = info.applicationInfo;
+            pm.addResolveInfoForIntent(main, resolve);
+
+            if (i < RECENT) usage.recordLaunch(pkg);
+        }
+    }
+
+    // Spread over the alphabet so the grid gets sections and T9 has something to narrow
+    private static String labelOf(int i) {
+        return (char) ('A' + i % 26) + "pp " + i;
+    }
+
+    // --- Driving ---
+
+    // Workers post back to the main looper, run it until nothing arrives for a while
+    private static void settle() {
+        ShadowLooper looper = shadowOf(Looper.getMainLooper());
+        int quiet = 0;
+        for (int i = 0; i < 500 && quiet < 10; i++) {
+            looper.idleFor(Duration.ofMillis(16));
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            quiet = looper.isIdle() ? quiet + 1 : 0;
+        }
+    }
+
+    private <T extends View> T screen(Class<T> type) {
+        ViewGroup content = launcher.findViewById(android.R.id.content);
+        ViewGroup screens = (ViewGroup) content.getChildAt(0);
+        for (int i = 0; i < screens.getChildCount(); i++) {
+            if (type.isInstance(screens.getChildAt(i))) return type.cast(screens.getChildAt(i));
+        }
+        throw new AssertionError("No " + type.getSimpleName() + " attached");
+    }
+
+    private static void press(View view, int keyCode) {
+        view.onKeyDown(keyCode, new KeyEvent(KeyEvent.ACTION_DOWN, keyCode));
+        view.onKeyUp(keyCode, new KeyEvent(KeyEvent.ACTION_UP, keyCode));
+        settle();
+    }
+
+    private static void assertWithinBudget(String action) {
+        PerfCounters.finishAction();
+        assertEquals(action, PerfCounters.lastActionName());
+        int[] counts = PerfCounters.lastActionCounts();
+        int[] budget = PerfCounters.budgetOf(action);
+        assertNotNull(budget);
+        for (int i = 0; i < PerfCounters.COUNTERS; i++) {
+            if (budget[i] == PerfCounters.UNBOUNDED) continue;
+            assertTrue(action + ": " + PerfCounters.NAMES[i] + " " + counts[i] + " over budget " + budget[i],
+                    counts[i] <= budget[i]);
+        }
+    }
+
+    private AppListView openGrid() {
+        press(screen(Launcher.LauncherView.class), KeyEvent.KEYCODE_DPAD_CENTER);
+        AppListView grid = screen(AppListView.class);
+        assertEquals(View.VISIBLE, grid.getVisibility());
+        return grid;
+    }
+
+    private Tasks openTasks() {
+        press(screen(Launcher.LauncherView.class), KeyEvent.KEYCODE_DPAD_UP);
+        Tasks tasks = screen(Tasks.class);
+        assertEquals(View.VISIBLE, tasks.getVisibility());
+        return tasks;
+    }
+
+    // --- Budgets ---
+
+    @Test
+    public void gridOpensWithoutBuildingRows() {
+        AppListView grid = openGrid();
+        assertWithinBudget("grid.open");
+        assertEquals(APPS, grid.getAdapter().getCount());
+    }
+
+    @Test
+    public void gridScrollRecyclesRows() {
+        AppListView grid = openGrid();
+        for (int i = 0; i < 6; i++) {
+            press(grid, KeyEvent.KEYCODE_DPAD_DOWN);
+            assertWithinBudget("grid.scroll");
+        }
+    }
+
+    @Test
+    public void gridSearchNarrowsWithinBudget() {
+        AppListView grid = openGrid();
+        press(grid, KeyEvent.KEYCODE_2); // A, B, C
+        assertWithinBudget("grid.search");
+        int afterOne = grid.getAdapter().getCount();
+        assertTrue(afterOne > 0 && afterOne < APPS);
+
+        press(grid, KeyEvent.KEYCODE_7); // Ap, Bp, Cp
+        assertWithinBudget("grid.search");
+        assertTrue(grid.getAdapter().getCount() <= afterOne);
+
+        press(grid, KeyEvent.KEYCODE_DEL);
+        assertWithinBudget("grid.search");
+        assertEquals(afterOne, grid.getAdapter().getCount());
+    }
+
+    @Test
+    public void homeOpensWithoutBuildingAnything() {
+        AppListView grid = openGrid();
+        press(grid, KeyEvent.KEYCODE_BACK);
+        assertWithinBudget("home.open");
+        assertEquals(View.VISIBLE, screen(Launcher.LauncherView.class).getVisibility());
+    }
+
+    @Test
+    public void tasksOpenWithinBudget() {
+        Tasks tasks = openTasks();
+        assertWithinBudget("tasks.open");
+        assertEquals(RECENT, tasks.getAdapter().getCount());
+    }
+
+    @Test
+    public void tasksMoveTouchesOnlyTwoRows() {
+        Tasks tasks = openTasks();
+        for (int i = 0; i < 4; i++) {
+            press(tasks, KeyEvent.KEYCODE_DPAD_DOWN);
+            assertWithinBudget("tasks.move");
+        }
+        press(tasks, KeyEvent.KEYCODE_DPAD_UP);
+        assertWithinBudget("tasks.move");
+    }
+
+    @Test
+    public void releaseBuildsCountNothing() {
+        PerfCounters.enabled = false;
+        String last = PerfCounters.lastActionName();
+        openGrid();
+        PerfCounters.finishAction();
+        assertEquals(last, PerfCounters.lastActionName());
+    }
+}
@@ -0,0 +1,66 @@
+package com.monobogdan.monolaunch.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/** Synthetic, reproducible app catalogs for the benchmarks. */
+final class Catalogs {
+
+    static final class App {
+        final String label;
+        final T9Label t9;
+
+        App(String label) {
+            this.label = label;
+            this.t9 = T9Label.of(label);
+        }
+    }
+
+    private static final String[] SYLLABLES = {
+            "go", "o", "gle", "ma", "ps", "wha", "ts", "app", "tel", "e", "gram", "you",
+            "tu", "be", "cal", "cu", "la", "tor", "clo", "ck", "mu", "sic", "pho", "to",
+            "set", "ti", "ngs", "me", "ssa", "ges", "fi", "les", "ca", "me", "ra", "no"
+    };
+    private static final String[] HEBREW_WORDS = {"שעון", "מצלמה", "הודעות", "אנשי קשר", "מחשבון"};
+
+    private Catalogs() {
+    }
+
+    /** Labels sorted like the grid sorts them, a tenth of them Hebrew. */
+    static List<String> labels(int size) {
+        Random random = new Random(size);
+        List<String> labels = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            StringBuilder label = new StringBuilder();
+            int words = 1 + random.nextInt(3);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) label.append(' ');
+                if (random.nextInt(10) == 0) {
+                    label.append(HEBREW_WORDS[random.nextInt(HEBREW_WORDS.length)]);
+                    continue;
+                }
+                int start = label.length();
+                int syllables = 1 + random.nextInt(3);
+                for (int s = 0; s < syllables; s++) label.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+                label.setCharAt(start, Character.toUpperCase(label.charAt(start)));
+            }
+            labels.add(label.toString());
+        }
+        Collections.sort(labels, String.CASE_INSENSITIVE_ORDER);
+        return labels;
+    }
+
+    static List<App> apps(int size) {
+        List<App> apps = new ArrayList<>(size);
+        for (String label : labels(size)) apps.add(new App(label));
+        return apps;
+    }
+
+    static byte[] query(String digits) {
+        byte[] query = new byte[digits.length()];
+        for (int i = 0; i < query.length; i++) query[i] = (byte) (digits.charAt(i) - '0');
+        return query;
+    }
+}
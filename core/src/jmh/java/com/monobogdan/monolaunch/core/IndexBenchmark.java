@@ -0,0 +1,82 @@
+package com.monobogdan.monolaunch.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/** Index build times: T9 labels and sort keys for a whole catalog, and the fast-scroll sections. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IndexBenchmark {
+
+    @Param({"50", "500", "5000"})
+    public int size;
+
+    private final LabelCollator collator = new LabelCollator(Locale.US);
+    private List<String> labels;
+    private List<String> keys; // Sorted sort keys, as the grid holds them
+    private SectionIndex<String> sections;
+
+    @Setup
+    public void setUp() {
+        labels = Catalogs.labels(size);
+        keys = new ArrayList<>(size);
+        for (String label : labels) keys.add(collator.keyOf(label));
+        Collections.sort(keys);
+        sections = new SectionIndex<>(new SectionIndex.Labeler<String>() {
+            @Override
+            public String sectionOf(String key) {
+                return LabelCollator.sectionOf(key);
+            }
+        });
+        sections.rebuild(keys);
+    }
+
+    /** What AppCatalog does for every entry after a locale change or a cold start. */
+    @Benchmark
+    public void buildT9Labels(Blackhole bh) {
+        for (int i = 0; i < labels.size(); i++) bh.consume(T9Label.of(labels.get(i)));
+    }
+
+    @Benchmark
+    public void buildSortKeys(Blackhole bh) {
+        for (int i = 0; i < labels.size(); i++) bh.consume(collator.keyOf(labels.get(i)));
+    }
+
+    /** A full rebuild, done once per catalog change. */
+    @Benchmark
+    public String[] rebuildSections() {
+        sections.rebuild(keys);
+        return sections.getSections();
+    }
+
+    /** What the fast scroller asks while it is dragged. */
+    @Benchmark
+    public int sectionForPosition() {
+        return sections.getSectionForPosition(size / 3);
+    }
+
+    /** One package installed and removed again, the patch path of a package broadcast. */
+    @Benchmark
+    public String[] patchSections() {
+        List<String> items = new ArrayList<>(keys);
+        items.add(items.size() / 2, collator.keyOf("Zzz"));
+        sections.onInserted(items, items.size() / 2);
+        items.remove(items.size() / 2);
+        sections.onRemoved(items, items.size() / 2);
+        return sections.getSections();
+    }
+}
@@ -0,0 +1,50 @@
+package com.monobogdan.monolaunch.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Task list ordering and the "most used" sort over launch histories of different sizes. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LaunchScoresBenchmark {
+
+    private static final int MAX_TASKS = 50; // As in Tasks
+
+    @Param({"50", "500", "5000"})
+    public int size;
+
+    private LaunchScores scores;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(size);
+        now = System.currentTimeMillis();
+        scores = new LaunchScores();
+        for (int i = 0; i < size * 4; i++) {
+            long age = (long) (random.nextDouble() * 30 * LaunchScores.HALF_LIFE / 3);
+            scores.launch("com.example.app" + random.nextInt(size), now - age);
+        }
+    }
+
+    @Benchmark
+    public List<String> recentTasks() {
+        return scores.recent(MAX_TASKS);
+    }
+
+    @Benchmark
+    public List<String> mostUsed() {
+        return scores.mostUsed(MAX_TASKS, now);
+    }
+}
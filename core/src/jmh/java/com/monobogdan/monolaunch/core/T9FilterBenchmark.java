@@ -0,0 +1,72 @@
+package com.monobogdan.monolaunch.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency and allocation per keystroke. Run with the gc profiler (the default in
+ * core/build.gradle) and read gc.alloc.rate.norm as bytes per keystroke.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class T9FilterBenchmark {
+
+    @Param({"50", "500", "5000"})
+    public int size;
+
+    // "go", "goo", "goog": prefix matches plus a few initials and substrings
+    private static final byte[] ONE = Catalogs.query("4");
+    private static final byte[] THREE = Catalogs.query("466");
+    private static final byte[] FOUR = Catalogs.query("4664");
+
+    private List<Catalogs.App> apps;
+    private T9Filter<Catalogs.App> filter;
+
+    @Setup
+    public void setUp() {
+        apps = Catalogs.apps(size);
+        filter = new T9Filter<>(new T9Filter.Adapter<Catalogs.App>() {
+            @Override
+            public T9Label labelOf(Catalogs.App app) {
+                return app.t9;
+            }
+
+            @Override
+            public int bonusOf(Catalogs.App app) {
+                return 0;
+            }
+        });
+        filter.filter(apps, THREE);
+    }
+
+    /** First digit typed: a scan of the whole catalog. */
+    @Benchmark
+    public List<Catalogs.App> firstKeystroke() {
+        filter.reset();
+        return filter.filter(apps, ONE);
+    }
+
+    /** A digit typed on top of a cached level, then deleted again. Two keystrokes. */
+    @Benchmark
+    public List<Catalogs.App> nextKeystroke() {
+        filter.filter(apps, FOUR);
+        return filter.filter(apps, THREE);
+    }
+
+    /** Four digits typed from scratch, as when the grid data changed under the query. */
+    @Benchmark
+    public List<Catalogs.App> coldQuery() {
+        filter.reset();
+        return filter.filter(apps, FOUR);
+    }
+}
@@ -0,0 +1,82 @@
+package com.monobogdan.monolaunch.core;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Sort keys for app labels that plain {@link String#compareTo} orders the way a reader of
+ * the current locale expects.
+ *
+ * A key is the label lower-cased with Latin accents and niqqud stripped, Hebrew final
+ * forms and the Cyrillic yo folded to their base letters, and prefixed with a rank:
+ * digits and symbols first, then the locale's own script, Latin, and everything else.
+ * Labels that share a section therefore sit next to each other, and the section is read
+ * straight off the key.
+ */
+public final class LabelCollator {
+
+    /** Section of labels that do not start with a letter. */
+    public static final String OTHER_SECTION = "#";
+
+    private static final char RANK_OTHER = '0';
+    private static final char RANK_LOCAL = '1';
+    private static final char RANK_LATIN = '2';
+    private static final char RANK_FOREIGN = '3';
+
+    private final Locale locale;
+    private final Character.UnicodeBlock localBlock;
+
+    public LabelCollator(Locale locale) {
+        this.locale = locale;
+        String language = locale.getLanguage();
+        // Android still reports Hebrew as the legacy "iw"
+        if (language.equals("iw") || language.equals("he")) localBlock = Character.UnicodeBlock.HEBREW;
+        else if (language.equals("ru") || language.equals("uk") || language.equals("be")) localBlock = Character.UnicodeBlock.CYRILLIC;
+        else localBlock = null;
+    }
+
+    public String keyOf(String label) {
+        String lower = label.trim().toLowerCase(locale);
+        StringBuilder key = new StringBuilder(lower.length() + 1).append(RANK_OTHER);
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (c >= '\u00C0' && c <= '\u017F') c = stripAccent(c);
+            else if (Character.getType(c) == Character.NON_SPACING_MARK) continue; // Niqqud, loose accents
+            key.append(fold(c));
+        }
+        if (key.length() > 1 && Character.isLetter(key.charAt(1))) key.setCharAt(0, rankOf(key.charAt(1)));
+        return key.toString();
+    }
+
+    /** Upper-cased first letter of a key made by {@link #keyOf}, {@link #OTHER_SECTION} otherwise. */
+    public static String sectionOf(String key) {
+        if (key.length() < 2 || key.charAt(0) == RANK_OTHER) return OTHER_SECTION;
+        return String.valueOf(Character.toUpperCase(key.charAt(1)));
+    }
+
+    private char rankOf(char letter) {
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(letter);
+        if (block == localBlock) return RANK_LOCAL;
+        if (block == Character.UnicodeBlock.BASIC_LATIN || block == Character.UnicodeBlock.LATIN_1_SUPPLEMENT
+                || block == Character.UnicodeBlock.LATIN_EXTENDED_A) return RANK_LATIN;
+        return RANK_FOREIGN;
+    }
+
+    // Only for Latin, NFD would also split Cyrillic letters such as й
+    private static char stripAccent(char c) {
+        return Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+    }
+
+    private static char fold(char c) {
+        switch (c) {
+            case 'ך': return 'כ';
+            case 'ם': return 'מ';
+            case 'ן': return 'נ';
+            case 'ף': return 'פ';
+            case 'ץ': return 'צ';
+            case 'ё': return 'е';
+            case 'ß': return 's';
+            default: return c;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.monobogdan.monolaunch.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory launch model: a decaying launch count and the last launch time per package.
+ *
+ * Scores halve every three days, so "most used" follows current habits and "recent"
+ * orders the task list. Persistence and locking are the caller's business.
+ */
+public final class LaunchScores {
+
+    public static final double HALF_LIFE = 3 * 24 * 60 * 60 * 1000.0;
+
+    public static final class Entry {
+        public String packageName;
+        public double score; // Valid at scoreTime
+        public long scoreTime;
+        public long lastLaunch;
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /** Decayed launch count at {@code now}, 0 for unknown packages. */
+    public double score(String packageName, long now) {
+        Entry e = entries.get(packageName);
+        return e != null ? decayed(e, now) : 0;
+    }
+
+    /** Packages by decayed launch count, highest first. */
+    public List<String> mostUsed(int limit, long now) {
+        final Map<String, Double> scores = new HashMap<>();
+        for (Entry e : entries.values()) scores.put(e.packageName, decayed(e, now));
+
+        return top(new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return Double.compare(scores.get(b.packageName), scores.get(a.packageName));
+            }
+        }, limit);
+    }
+
+    /** Packages by last launch, most recent first. */
+    public List<String> recent(int limit) {
+        return top(new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return Long.compare(b.lastLaunch, a.lastLaunch);
+            }
+        }, limit);
+    }
+
+    private List<String> top(Comparator<Entry> order, int limit) {
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        Collections.sort(sorted, order);
+        List<String> result = new ArrayList<>(Math.min(limit, sorted.size()));
+        for (int i = 0; i < sorted.size() && i < limit; i++) result.add(sorted.get(i).packageName);
+        return result;
+    }
+
+    /** Counts one launch. Order independent, so replayed and imported launches may come in any order. */
+    public void launch(String packageName, long time) {
+        Entry e = entries.get(packageName);
+        if (e == null) {
+            e = new Entry();
+            e.packageName = packageName;
+            e.scoreTime = time;
+            entries.put(packageName, e);
+        }
+        if (time >= e.scoreTime) {
+            e.score = decayed(e, time) + 1;
+            e.scoreTime = time;
+        } else {
+            e.score += Math.pow(0.5, (e.scoreTime - time) / HALF_LIFE);
+        }
+        e.lastLaunch = Math.max(e.lastLaunch, time);
+    }
+
+    /** Restores an entry from a snapshot, replacing what is known about the package. */
+    public void restore(Entry e) {
+        entries.put(e.packageName, e);
+    }
+
+    /** Forgets packages whose score fell below {@code forget} and returns copies of the rest. */
+    public List<Entry> compact(long now, double forget) {
+        List<Entry> snapshot = new ArrayList<>();
+        Collection<Entry> all = new ArrayList<>(entries.values());
+        for (Entry e : all) {
+            if (decayed(e, now) < forget) {
+                entries.remove(e.packageName);
+                continue;
+            }
+            Entry copy = new Entry();
+            copy.packageName = e.packageName;
+            copy.score = e.score;
+            copy.scoreTime = e.scoreTime;
+            copy.lastLaunch = e.lastLaunch;
+            snapshot.add(copy);
+        }
+        return snapshot;
+    }
+
+    public static double decayed(Entry e, long now) {
+        if (now <= e.scoreTime) return e.score;
+        return e.score * Math.pow(0.5, (now - e.scoreTime) / HALF_LIFE);
+    }
+}
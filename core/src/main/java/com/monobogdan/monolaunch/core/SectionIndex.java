@@ -0,0 +1,148 @@
+package com.monobogdan.monolaunch.core;
+
+import java.util.List;
+
+/**
+ * Fast-scroll sections of a sorted list, kept as runs: every run is a section name and
+ * the position where it starts, in list order.
+ *
+ * Section names come precomputed with the items (see {@link LabelCollator#sectionOf}), so
+ * a rebuild is one pass comparing neighbours. A single insert or removal, which is what
+ * package broadcasts cause, patches the runs instead of rescanning the list. Position to
+ * section is a binary search over the run starts, section to position an array read.
+ */
+public final class SectionIndex<T> {
+
+    public interface Labeler<T> {
+        /** Precomputed section of the item, never null. */
+        String sectionOf(T item);
+    }
+
+    private final Labeler<T> labeler;
+    private String[] names = new String[16];
+    private int[] starts = new int[16];
+    private int count;
+    private boolean built;
+    private String[] sections = new String[0]; // Snapshot handed to the fast scroller
+
+    public SectionIndex(Labeler<T> labeler) {
+        this.labeler = labeler;
+    }
+
+    public void rebuild(List<T> items) {
+        count = 0;
+        String last = null;
+        for (int i = 0; i < items.size(); i++) {
+            String s = labeler.sectionOf(items.get(i));
+            if (!s.equals(last)) insertRun(count, s, i);
+            last = s;
+        }
+        built = true;
+        updateSections();
+    }
+
+    /** Drops all sections, e.g. while the list is filtered. Patches are ignored until the next rebuild. */
+    public void clear() {
+        count = 0;
+        built = false;
+        sections = new String[0];
+    }
+
+    /** {@code items} already contains the new entry at {@code position}. */
+    public void onInserted(List<T> items, int position) {
+        if (!built) return;
+        String s = labeler.sectionOf(items.get(position));
+        int run = runAt(position); // Run of the item that was at position, the last one for an append
+        int previous = position > 0 ? runAt(position - 1) : -1;
+
+        if (previous >= 0 && names[previous].equals(s)) {
+            shift(previous + 1, 1); // Extends the run before it
+        } else if (run >= 0 && starts[run] == position && names[run].equals(s)) {
+            shift(run + 1, 1); // Becomes the new head of the run after it
+        } else if (run >= 0 && starts[run] < position && position < items.size() - 1) {
+            // Lands inside a run of another section and splits it in two
+            shift(run + 1, 1);
+            insertRun(run + 1, s, position);
+            insertRun(run + 2, names[run], position + 1);
+            updateSections();
+        } else {
+            int at = run >= 0 && starts[run] >= position ? run : count;
+            shift(at, 1);
+            insertRun(at, s, position);
+            updateSections();
+        }
+    }
+
+    /** {@code items} no longer contains the entry that used to sit at {@code position}. */
+    public void onRemoved(List<T> items, int position) {
+        if (!built) return;
+        int run = runAt(position);
+        if (run < 0) return;
+        int end = run + 1 < count ? starts[run + 1] : items.size() + 1;
+        if (end - starts[run] > 1) {
+            shift(run + 1, -1);
+            return;
+        }
+        // Last item of its run, the neighbours may now be one run
+        removeRun(run);
+        shift(run, -1);
+        if (run > 0 && run < count && names[run - 1].equals(names[run])) removeRun(run);
+        updateSections();
+    }
+
+    public String[] getSections() {
+        return sections;
+    }
+
+    public int getPositionForSection(int sectionIndex) {
+        if (count == 0) return 0;
+        return starts[Math.max(0, Math.min(sectionIndex, count - 1))];
+    }
+
+    public int getSectionForPosition(int position) {
+        return Math.max(0, runAt(position));
+    }
+
+    // Index of the last run starting at or before position, -1 when there are no runs
+    private int runAt(int position) {
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= position) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return hi;
+    }
+
+    private void shift(int fromRun, int delta) {
+        for (int i = fromRun; i < count; i++) starts[i] += delta;
+    }
+
+    private void insertRun(int at, String name, int start) {
+        if (count == starts.length) {
+            String[] n = new String[count * 2];
+            int[] s = new int[count * 2];
+            System.arraycopy(names, 0, n, 0, count);
+            System.arraycopy(starts, 0, s, 0, count);
+            names = n;
+            starts = s;
+        }
+        System.arraycopy(names, at, names, at + 1, count - at);
+        System.arraycopy(starts, at, starts, at + 1, count - at);
+        names[at] = name;
+        starts[at] = start;
+        count++;
+    }
+
+    private void removeRun(int at) {
+        System.arraycopy(names, at + 1, names, at, count - at - 1);
+        System.arraycopy(starts, at + 1, starts, at, count - at - 1);
+        names[--count] = null;
+    }
+
+    private void updateSections() {
+        sections = new String[count];
+        System.arraycopy(names, 0, sections, 0, count);
+    }
+}
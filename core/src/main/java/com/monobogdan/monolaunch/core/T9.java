@@ -0,0 +1,120 @@
+package com.monobogdan.monolaunch.core;
+
+/**
+ * T9 keypad mapping backed by primitive lookup tables.
+ *
+ * Labels are turned into digit signatures once, when their catalog entry is built, so a
+ * keypress only compares bytes and never boxes characters or allocates strings.
+ */
+public final class T9 {
+
+    // Match quality, higher is better. 0 means no match at all.
+    public static final int MATCH_NONE = 0;
+    public static final int MATCH_SUBSTRING = 100;
+    public static final int MATCH_INITIALS = 250;
+    public static final int MATCH_WORD_START = 300;
+    public static final int MATCH_PREFIX = 400;
+
+    private static final char HEBREW_FIRST = 'א'; // Alef
+    private static final byte[] LATIN = new byte[26];
+    private static final byte[] HEBREW = new byte[27]; // Alef..Tav, final forms included
+
+    static {
+        // English
+        map("abc", 2); map("def", 3); map("ghi", 4); map("jkl", 5);
+        map("mno", 6); map("pqrs", 7); map("tuv", 8); map("wxyz", 9);
+        // Hebrew
+        map("אבג", 2); map("דהו", 3); map("זחט", 4);
+        map("יכלך", 5); map("מנסםן", 6); map("עפצףץ", 7);
+        map("קרש", 8); map("ת", 9);
+    }
+
+    private static void map(String letters, int digit) {
+        for (char c : letters.toCharArray()) {
+            if (c >= 'a' && c <= 'z') LATIN[c - 'a'] = (byte) digit;
+            else HEBREW[c - HEBREW_FIRST] = (byte) digit;
+        }
+    }
+
+    private T9() {
+    }
+
+    /** Keypad digit for the character, or -1 when it has no key (spaces, punctuation...). */
+    public static int digitOf(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'z') return LATIN[c - 'a'];
+        if (c >= 'A' && c <= 'Z') return LATIN[c - 'A'];
+        if (c >= HEBREW_FIRST && c < HEBREW_FIRST + HEBREW.length) return HEBREW[c - HEBREW_FIRST];
+        return -1;
+    }
+
+    /** Digits of every mappable character of the label, unmapped ones are skipped. */
+    public static byte[] signature(String label) {
+        int len = 0;
+        for (int i = 0; i < label.length(); i++) {
+            if (digitOf(label.charAt(i)) >= 0) len++;
+        }
+        byte[] sig = new byte[len];
+        int j = 0;
+        for (int i = 0; i < label.length(); i++) {
+            int d = digitOf(label.charAt(i));
+            if (d >= 0) sig[j++] = (byte) d;
+        }
+        return sig;
+    }
+
+    /** Parallel to {@link #signature}: 1 where a word starts ("Google Maps", "WhatsApp"), else 0. */
+    public static byte[] wordStarts(String label) {
+        byte[] starts = new byte[signature(label).length];
+        int j = 0;
+        char prev = ' ';
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            if (digitOf(c) >= 0) {
+                boolean start = !Character.isLetterOrDigit(prev)
+                        || (Character.isUpperCase(c) && Character.isLowerCase(prev));
+                starts[j++] = (byte) (start ? 1 : 0);
+            }
+            prev = c;
+        }
+        return starts;
+    }
+
+    /** Digits of the first letter of every word, "Google Maps" gives 46. */
+    public static byte[] initials(byte[] sig, byte[] starts) {
+        int len = 0;
+        for (byte s : starts) len += s;
+        byte[] initials = new byte[len];
+        int j = 0;
+        for (int i = 0; i < sig.length; i++) {
+            if (starts[i] != 0) initials[j++] = sig[i];
+        }
+        return initials;
+    }
+
+    /**
+     * Best way the first {@code queryLen} digits of {@code query} match an entry. A query that
+     * matches also matches with its last digit removed, so results can be narrowed per keypress.
+     */
+    public static int match(byte[] sig, byte[] starts, byte[] initials, byte[] query, int queryLen) {
+        int best = MATCH_NONE;
+        if (queryLen > 1 && regionMatches(initials, 0, query, queryLen)) best = MATCH_INITIALS;
+
+        for (int start = 0; start <= sig.length - queryLen; start++) {
+            if (!regionMatches(sig, start, query, queryLen)) continue;
+            if (start == 0) return MATCH_PREFIX;
+            // Only a prefix beats a word start, and that was checked first
+            if (starts[start] != 0) return MATCH_WORD_START;
+            best = Math.max(best, MATCH_SUBSTRING);
+        }
+        return best;
+    }
+
+    private static boolean regionMatches(byte[] sig, int start, byte[] query, int queryLen) {
+        if (start + queryLen > sig.length) return false;
+        for (int i = 0; i < queryLen; i++) {
+            if (sig[start + i] != query[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,100 @@
+package com.monobogdan.monolaunch.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Incremental T9 search over a list of items.
+ *
+ * Matches are kept per query prefix: typing a digit only narrows the previous level,
+ * deleting one drops the deeper levels, and a different digit drops every level from
+ * where the queries differ. Results are ordered by match class, then by a caller supplied
+ * bonus; ties keep the source order. Not thread safe, use it from the one thread that
+ * runs the searches.
+ */
+public final class T9Filter<T> {
+
+    public interface Adapter<T> {
+        T9Label labelOf(T item);
+
+        /** Orders items within one match class, higher first. Never lifts an item into a better class. */
+        int bonusOf(T item);
+    }
+
+    private static class Ranked<T> {
+        T item;
+        int match;
+        int bonus;
+    }
+
+    private static final Comparator<Ranked<?>> BY_RANK = new Comparator<Ranked<?>>() {
+        @Override
+        public int compare(Ranked<?> a, Ranked<?> b) {
+            if (a.match != b.match) return Integer.compare(b.match, a.match);
+            return Integer.compare(b.bonus, a.bonus);
+        }
+    };
+
+    private final Adapter<T> adapter;
+    private final List<List<T>> levels = new ArrayList<>(); // Matches per query length
+    private List<T> source; // The list the levels were computed from
+    private byte[] digits = new byte[0]; // The query the levels were computed for
+
+    public T9Filter(Adapter<T> adapter) {
+        this.adapter = adapter;
+    }
+
+    /** Items of {@code items} matching the whole query, best first. */
+    public List<T> filter(List<T> items, byte[] query) {
+        int len = query.length;
+        if (len == 0) {
+            reset();
+            return new ArrayList<>(items);
+        }
+
+        // New data invalidates every level, a changed or deleted digit the ones from there on
+        if (source != items) {
+            levels.clear();
+            source = items;
+        }
+        int keep = 0;
+        while (keep < levels.size() && keep < len && digits[keep] == query[keep]) keep++;
+        while (levels.size() > keep) levels.remove(levels.size() - 1);
+        digits = query.clone();
+
+        // Each extra digit only narrows the previous level's matches
+        for (int level = levels.size(); level < len; level++) {
+            List<T> candidates = level == 0 ? items : levels.get(level - 1);
+            List<T> matches = new ArrayList<>();
+            for (T item : candidates) {
+                if (adapter.labelOf(item).match(query, level + 1) != T9.MATCH_NONE) matches.add(item);
+            }
+            levels.add(matches);
+        }
+
+        List<T> matches = levels.get(len - 1);
+        List<Ranked<T>> ranked = new ArrayList<>(matches.size());
+        for (T item : matches) {
+            Ranked<T> r = new Ranked<>();
+            r.item = item;
+            r.match = adapter.labelOf(item).match(query, len);
+            r.bonus = adapter.bonusOf(item);
+            ranked.add(r);
+        }
+        // Stable, so equal ranks keep the source order
+        Collections.sort(ranked, BY_RANK);
+
+        List<T> result = new ArrayList<>(ranked.size());
+        for (Ranked<T> r : ranked) result.add(r.item);
+        return result;
+    }
+
+    /** Drops the cached levels, e.g. when leaving search. */
+    public void reset() {
+        levels.clear();
+        source = null;
+        digits = new byte[0];
+    }
+}
@@ -0,0 +1,29 @@
+package com.monobogdan.monolaunch.core;
+
+/**
+ * Precomputed T9 form of one label: its digit signature, where words start and the
+ * digits of the word initials. Built once per catalog entry, immutable afterwards.
+ */
+public final class T9Label {
+
+    public final byte[] signature;
+    public final byte[] wordStarts;
+    public final byte[] initials;
+
+    private T9Label(byte[] signature, byte[] wordStarts, byte[] initials) {
+        this.signature = signature;
+        this.wordStarts = wordStarts;
+        this.initials = initials;
+    }
+
+    public static T9Label of(String label) {
+        byte[] sig = T9.signature(label);
+        byte[] starts = T9.wordStarts(label);
+        return new T9Label(sig, starts, T9.initials(sig, starts));
+    }
+
+    /** See {@link T9#match}. */
+    public int match(byte[] query, int queryLen) {
+        return T9.match(signature, wordStarts, initials, query, queryLen);
+    }
+}
@@ -0,0 +1,64 @@
+package com.monobogdan.monolaunch.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+public class LabelCollatorTest {
+
+    private static final Locale HEBREW = new Locale("iw");
+    private static final Locale RUSSIAN = new Locale("ru");
+
+    @Test
+    public void latinAccentsAreStripped() {
+        LabelCollator collator = new LabelCollator(Locale.ENGLISH);
+        assertEquals("2eclair", collator.keyOf("Éclair"));
+        assertEquals("2strase", collator.keyOf("Straße"));
+        assertEquals("E", LabelCollator.sectionOf(collator.keyOf("Éclair")));
+    }
+
+    @Test
+    public void digitsAndSymbolsGoToOtherSection() {
+        LabelCollator collator = new LabelCollator(Locale.ENGLISH);
+        assertEquals("02gis", collator.keyOf("2GIS"));
+        assertEquals(LabelCollator.OTHER_SECTION, LabelCollator.sectionOf(collator.keyOf("2GIS")));
+        assertEquals(LabelCollator.OTHER_SECTION, LabelCollator.sectionOf(collator.keyOf("  ")));
+    }
+
+    @Test
+    public void hebrewFinalFormsAndNiqqudAreFolded() {
+        LabelCollator collator = new LabelCollator(HEBREW);
+        assertEquals("1שלומ", collator.keyOf("שלום"));
+        assertEquals("1שלומ", collator.keyOf("שָׁלוֹם"));
+        assertEquals("ש", LabelCollator.sectionOf(collator.keyOf("שלום")));
+    }
+
+    @Test
+    public void cyrillicYoIsFolded() {
+        LabelCollator collator = new LabelCollator(RUSSIAN);
+        assertEquals("1елка", collator.keyOf("Ёлка"));
+        assertEquals("Е", LabelCollator.sectionOf(collator.keyOf("Ёлка")));
+    }
+
+    @Test
+    public void localScriptSortsBeforeLatinAndForeign() {
+        LabelCollator collator = new LabelCollator(RUSSIAN);
+        List<String> keys = new ArrayList<>();
+        for (String label : Arrays.asList("Zoom", "שלום", "Almanac", "Яндекс", "2GIS", "Банк")) {
+            keys.add(collator.keyOf(label));
+        }
+        Collections.sort(keys);
+        assertEquals(Arrays.asList("02gis", "1банк", "1яндекс", "2almanac", "2zoom", "3שלומ"), keys);
+    }
+
+    @Test
+    public void cyrillicIsForeignOutsideItsLocales() {
+        assertEquals("3банк", new LabelCollator(Locale.ENGLISH).keyOf("Банк"));
+    }
+}
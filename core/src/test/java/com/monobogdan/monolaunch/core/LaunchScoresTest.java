@@ -0,0 +1,72 @@
+package com.monobogdan.monolaunch.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class LaunchScoresTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long T0 = 1000 * DAY;
+
+    @Test
+    public void scoreHalvesEveryHalfLife() {
+        LaunchScores scores = new LaunchScores();
+        scores.launch("a", T0);
+        assertEquals(1.0, scores.score("a", T0), 1e-9);
+        assertEquals(0.5, scores.score("a", T0 + (long) LaunchScores.HALF_LIFE), 1e-9);
+        assertEquals(0.25, scores.score("a", T0 + 2 * (long) LaunchScores.HALF_LIFE), 1e-9);
+        assertEquals(0.0, scores.score("unknown", T0), 0);
+    }
+
+    @Test
+    public void launchOrderDoesNotMatter() {
+        LaunchScores inOrder = new LaunchScores();
+        LaunchScores reversed = new LaunchScores();
+        long[] times = {T0, T0 + DAY, T0 + 5 * DAY};
+        for (long t : times) inOrder.launch("a", t);
+        for (int i = times.length - 1; i >= 0; i--) reversed.launch("a", times[i]);
+
+        long now = T0 + 7 * DAY;
+        assertEquals(inOrder.score("a", now), reversed.score("a", now), 1e-9);
+    }
+
+    @Test
+    public void mostUsedFollowsDecayedScore() {
+        LaunchScores scores = new LaunchScores();
+        // Three old launches lose to two recent ones after a few half-lives
+        for (int i = 0; i < 3; i++) scores.launch("old", T0);
+        for (int i = 0; i < 2; i++) scores.launch("new", T0 + 9 * DAY);
+        List<String> top = scores.mostUsed(2, T0 + 9 * DAY);
+        assertEquals(Arrays.asList("new", "old"), top);
+        assertEquals(Arrays.asList("old", "new"), scores.mostUsed(2, T0));
+    }
+
+    @Test
+    public void recentOrdersByLastLaunch() {
+        LaunchScores scores = new LaunchScores();
+        scores.launch("a", T0 + 2 * DAY);
+        scores.launch("b", T0 + 3 * DAY);
+        scores.launch("a", T0);
+        scores.launch("c", T0 + DAY);
+        assertEquals(Arrays.asList("b", "a"), scores.recent(2));
+    }
+
+    @Test
+    public void compactForgetsDecayedPackages() {
+        LaunchScores scores = new LaunchScores();
+        scores.launch("stale", T0);
+        scores.launch("fresh", T0 + 30 * DAY);
+        List<LaunchScores.Entry> snapshot = scores.compact(T0 + 30 * DAY, 0.01);
+        assertEquals(1, snapshot.size());
+        assertEquals("fresh", snapshot.get(0).packageName);
+        assertEquals(1, scores.size());
+
+        LaunchScores restored = new LaunchScores();
+        restored.restore(snapshot.get(0));
+        assertEquals(scores.score("fresh", T0 + 31 * DAY), restored.score("fresh", T0 + 31 * DAY), 1e-9);
+    }
+}
@@ -0,0 +1,125 @@
+package com.monobogdan.monolaunch.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SectionIndexTest {
+
+    private static final SectionIndex.Labeler<String> FIRST_LETTER = new SectionIndex.Labeler<String>() {
+        @Override
+        public String sectionOf(String item) {
+            return item.substring(0, 1);
+        }
+    };
+
+    private static List<String> list(String... items) {
+        return new ArrayList<>(Arrays.asList(items));
+    }
+
+    private static SectionIndex<String> built(List<String> items) {
+        SectionIndex<String> index = new SectionIndex<>(FIRST_LETTER);
+        index.rebuild(items);
+        return index;
+    }
+
+    // A patched index has to answer exactly like one rebuilt from the same list
+    private static void assertSameAsRebuilt(List<String> items, SectionIndex<String> patched) {
+        SectionIndex<String> rebuilt = built(items);
+        assertArrayEquals(rebuilt.getSections(), patched.getSections());
+        for (int s = 0; s < rebuilt.getSections().length; s++) {
+            assertEquals(rebuilt.getPositionForSection(s), patched.getPositionForSection(s));
+        }
+        for (int p = 0; p < items.size(); p++) {
+            assertEquals("position " + p, rebuilt.getSectionForPosition(p), patched.getSectionForPosition(p));
+        }
+    }
+
+    private static void insert(List<String> items, SectionIndex<String> index, int position, String item) {
+        items.add(position, item);
+        index.onInserted(items, position);
+        assertSameAsRebuilt(items, index);
+    }
+
+    private static void remove(List<String> items, SectionIndex<String> index, int position) {
+        items.remove(position);
+        index.onRemoved(items, position);
+        assertSameAsRebuilt(items, index);
+    }
+
+    @Test
+    public void rebuildMakesOneSectionPerRun() {
+        SectionIndex<String> index = built(list("a1", "a2", "b1", "d1", "d2", "d3"));
+        assertArrayEquals(new String[]{"a", "b", "d"}, index.getSections());
+        assertEquals(3, index.getPositionForSection(2));
+        assertEquals(1, index.getSectionForPosition(2));
+        assertEquals(2, index.getSectionForPosition(5));
+    }
+
+    @Test
+    public void insertIntoExistingRuns() {
+        List<String> items = list("a1", "a2", "b1", "d1");
+        SectionIndex<String> index = built(items);
+        insert(items, index, 1, "a0"); // Inside a run
+        insert(items, index, 3, "a3"); // Tail of a run
+        insert(items, index, 4, "b0"); // Head of the next run
+    }
+
+    @Test
+    public void insertNewSections() {
+        List<String> items = list("b1", "d1", "d2");
+        SectionIndex<String> index = built(items);
+        insert(items, index, 0, "a1");      // Before everything
+        insert(items, index, 2, "c1");      // Between two runs
+        insert(items, index, items.size(), "e1"); // Append
+        insert(items, index, 4, "x1");      // Splits the d run
+    }
+
+    @Test
+    public void removeShrinksAndMergesRuns() {
+        List<String> items = list("a1", "a2", "b1", "a3", "c1", "c2");
+        SectionIndex<String> index = built(items);
+        remove(items, index, 1);              // Shrinks the a run
+        remove(items, index, 1);              // Last b, both a runs merge
+        remove(items, index, items.size() - 1);
+        remove(items, index, 0);
+        remove(items, index, 0);
+        remove(items, index, 0);
+        assertEquals(0, index.getSections().length);
+    }
+
+    @Test
+    public void patchesAreIgnoredAfterClear() {
+        List<String> items = list("a1", "b1");
+        SectionIndex<String> index = built(items);
+        index.clear();
+        items.add(1, "a2");
+        index.onInserted(items, 1);
+        assertEquals(0, index.getSections().length);
+        assertEquals(0, index.getPositionForSection(0));
+    }
+
+    @Test
+    public void randomPatchesMatchRebuild() {
+        Random random = new Random(42);
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 40; i++) items.add((char) ('a' + random.nextInt(6)) + "" + i);
+        Collections.sort(items);
+        SectionIndex<String> index = built(items);
+
+        for (int i = 0; i < 500; i++) {
+            if (!items.isEmpty() && random.nextBoolean()) {
+                remove(items, index, random.nextInt(items.size()));
+            } else {
+                insert(items, index, random.nextInt(items.size() + 1), (char) ('a' + random.nextInt(6)) + "x" + i);
+            }
+        }
+    }
+}
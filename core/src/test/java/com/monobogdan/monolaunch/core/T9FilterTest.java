@@ -0,0 +1,125 @@
+package com.monobogdan.monolaunch.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class T9FilterTest {
+
+    private static final class App {
+        final String label;
+        final T9Label t9;
+        final int bonus;
+
+        App(String label, int bonus) {
+            this.label = label;
+            this.t9 = T9Label.of(label);
+            this.bonus = bonus;
+        }
+    }
+
+    private static final T9Filter.Adapter<App> ADAPTER = new T9Filter.Adapter<App>() {
+        @Override
+        public T9Label labelOf(App app) {
+            return app.t9;
+        }
+
+        @Override
+        public int bonusOf(App app) {
+            return app.bonus;
+        }
+    };
+
+    private static List<App> apps(String... labels) {
+        List<App> apps = new ArrayList<>();
+        for (String label : labels) apps.add(new App(label, 0));
+        return apps;
+    }
+
+    private static byte[] query(String digits) {
+        byte[] query = new byte[digits.length()];
+        for (int i = 0; i < query.length; i++) query[i] = (byte) (digits.charAt(i) - '0');
+        return query;
+    }
+
+    private static List<String> labels(List<App> apps) {
+        List<String> labels = new ArrayList<>();
+        for (App app : apps) labels.add(app.label);
+        return labels;
+    }
+
+    private static List<String> fresh(List<App> apps, String digits) {
+        return labels(new T9Filter<>(ADAPTER).filter(apps, query(digits)));
+    }
+
+    @Test
+    public void narrowsWithEachDigit() {
+        List<App> apps = apps("Gmail", "Google Maps", "Camera");
+        T9Filter<App> filter = new T9Filter<>(ADAPTER);
+        assertEquals(Arrays.asList("Gmail", "Google Maps"), labels(filter.filter(apps, query("4"))));
+        assertEquals(Arrays.asList("Google Maps"), labels(filter.filter(apps, query("466"))));
+        assertEquals(Arrays.asList("Camera", "Gmail", "Google Maps"), fresh(apps, "2"));
+    }
+
+    @Test
+    public void backspaceKeepsShorterLevels() {
+        List<App> apps = apps("Gmail", "Google Maps", "Camera");
+        T9Filter<App> filter = new T9Filter<>(ADAPTER);
+        filter.filter(apps, query("466"));
+        assertEquals(fresh(apps, "46"), labels(filter.filter(apps, query("46"))));
+        assertEquals(fresh(apps, "4"), labels(filter.filter(apps, query("4"))));
+    }
+
+    @Test
+    public void emptyQueryDropsLevels() {
+        List<App> apps = apps("Jelly", "Kik", "Gmail");
+        T9Filter<App> filter = new T9Filter<>(ADAPTER);
+        filter.filter(apps, query("4"));
+        assertEquals(labels(apps), labels(filter.filter(apps, query(""))));
+        assertEquals(fresh(apps, "5"), labels(filter.filter(apps, query("5"))));
+    }
+
+    @Test
+    public void changedDigitRestartsFromThere() {
+        List<App> apps = apps("Jelly", "Kik", "Gmail");
+        T9Filter<App> filter = new T9Filter<>(ADAPTER);
+        filter.filter(apps, query("4"));
+        assertEquals(fresh(apps, "5"), labels(filter.filter(apps, query("5"))));
+        filter.filter(apps, query("54"));
+        assertEquals(fresh(apps, "53"), labels(filter.filter(apps, query("53"))));
+    }
+
+    @Test
+    public void resetRestarts() {
+        List<App> apps = apps("Jelly", "Kik", "Gmail");
+        T9Filter<App> filter = new T9Filter<>(ADAPTER);
+        filter.filter(apps, query("54"));
+        filter.reset();
+        assertEquals(fresh(apps, "4"), labels(filter.filter(apps, query("4"))));
+    }
+
+    @Test
+    public void newSourceRestarts() {
+        List<App> apps = apps("Gmail", "Camera");
+        T9Filter<App> filter = new T9Filter<>(ADAPTER);
+        filter.filter(apps, query("4"));
+        List<App> more = new ArrayList<>(apps);
+        more.add(new App("Gallery", 0));
+        assertEquals(Arrays.asList("Gmail", "Gallery"), labels(filter.filter(more, query("4"))));
+    }
+
+    @Test
+    public void bonusOrdersWithinMatchClassOnly() {
+        List<App> apps = new ArrayList<>();
+        apps.add(new App("Gate Mix", 1000)); // Initials
+        apps.add(new App("Ax Go", 0));       // Word start
+        apps.add(new App("Gold", 0));        // Prefix
+        apps.add(new App("Goal", 5));        // Prefix
+        T9Filter<App> filter = new T9Filter<>(ADAPTER);
+        assertEquals(Arrays.asList("Goal", "Gold", "Ax Go", "Gate Mix"), labels(filter.filter(apps, query("46"))));
+    }
+}
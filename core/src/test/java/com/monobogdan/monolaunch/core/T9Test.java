@@ -0,0 +1,61 @@
+package com.monobogdan.monolaunch.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class T9Test {
+
+    private static byte[] digits(String digits) {
+        byte[] b = new byte[digits.length()];
+        for (int i = 0; i < b.length; i++) b[i] = (byte) (digits.charAt(i) - '0');
+        return b;
+    }
+
+    private static int match(String label, String query) {
+        return T9Label.of(label).match(digits(query), query.length());
+    }
+
+    @Test
+    public void signatureSkipsUnmappedCharacters() {
+        assertArrayEquals(digits("4664536277"), T9.signature("Google Maps!"));
+        assertArrayEquals(digits("2"), T9.signature("ג"));
+        assertEquals(-1, T9.digitOf(' '));
+    }
+
+    @Test
+    public void wordStartsOnSpacesAndCamelCase() {
+        assertArrayEquals(digits("1000001000"), T9.wordStarts("Google Maps"));
+        assertArrayEquals(digits("10000100"), T9.wordStarts("WhatsApp"));
+    }
+
+    @Test
+    public void matchClasses() {
+        assertEquals(T9.MATCH_PREFIX, match("Google Maps", "466"));
+        assertEquals(T9.MATCH_WORD_START, match("Google Maps", "627"));
+        assertEquals(T9.MATCH_INITIALS, match("Gate Mix", "46"));
+        assertEquals(T9.MATCH_SUBSTRING, match("Google Maps", "53"));
+        assertEquals(T9.MATCH_NONE, match("Google Maps", "99"));
+    }
+
+    @Test
+    public void singleDigitIsNeverAnInitialsMatch() {
+        assertEquals(T9.MATCH_WORD_START, match("Ax Go", "4"));
+        assertEquals(T9.MATCH_NONE, match("Ax Go", "5"));
+    }
+
+    @Test
+    public void prefixWinsOverLaterWordStart() {
+        assertEquals(T9.MATCH_PREFIX, match("Go Go", "46"));
+    }
+
+    @Test
+    public void shorterQueryMatchesToo() {
+        byte[] query = digits("6277");
+        T9Label label = T9Label.of("Google Maps");
+        for (int len = 1; len <= query.length; len++) {
+            assertEquals(true, label.match(query, len) != T9.MATCH_NONE);
+        }
+    }
+}